@@ -11,9 +11,17 @@ import java.util.Map;
 import javax.swing.UIManager;
 import javax.swing.filechooser.FileSystemView;
 
+import com.jonathanaquino.svntimelapseview.diff.DiffAlgorithm;
+import com.jonathanaquino.svntimelapseview.diff.DiffAlgorithms;
+import com.jonathanaquino.svntimelapseview.diff.InlineDiff;
 import com.jonathanaquino.svntimelapseview.helpers.DiffHelper;
+import com.jonathanaquino.svntimelapseview.scm.GitLoader;
+import com.jonathanaquino.svntimelapseview.scm.HistoryFilter;
 import com.jonathanaquino.svntimelapseview.scm.ScmFactory;
 import com.jonathanaquino.svntimelapseview.scm.ScmLoader;
+import com.jonathanaquino.svntimelapseview.scm.SvnLoader;
+import com.jonathanaquino.svntimelapseview.storage.LineDictionary;
+import com.jonathanaquino.svntimelapseview.storage.RevisionStore;
 
 /**
  * The top-level object in the program.
@@ -31,6 +39,17 @@ public class Application {
         CmdLineParser.Option passwordOption = parser.addStringOption("password");
         CmdLineParser.Option configOption = parser.addStringOption("config");
         CmdLineParser.Option limitOption = parser.addStringOption("limit");
+        CmdLineParser.Option concurrencyOption = parser.addStringOption("concurrency");
+        CmdLineParser.Option deltasOption = parser.addBooleanOption("deltas");
+        CmdLineParser.Option pathIndexOption = parser.addBooleanOption("path-index");
+        CmdLineParser.Option heapBudgetOption = parser.addStringOption("heap-budget");
+        CmdLineParser.Option maxDiffBytesOption = parser.addStringOption("max-diff-bytes");
+        CmdLineParser.Option maxDiffLinesOption = parser.addStringOption("max-diff-lines");
+        CmdLineParser.Option sinceOption = parser.addStringOption("since");
+        CmdLineParser.Option untilOption = parser.addStringOption("until");
+        CmdLineParser.Option authorOption = parser.addStringOption("author");
+        CmdLineParser.Option diffAlgorithmOption = parser.addStringOption("diff-algorithm");
+        CmdLineParser.Option contextOption = parser.addStringOption("context");
         parser.parse(args);
         String filePathOrUrl = parser.getRemainingArgs().length > 0 ? parser.getRemainingArgs()[0] : null;
         String configFilePath = (String) parser.getOptionValue(configOption);
@@ -51,7 +70,32 @@ public class Application {
         if (password == null) { password = ""; }
         String limitString = (String) parser.getOptionValue(limitOption);
         int limit = limitString == null ? 100 : Integer.parseInt(limitString);
-        new ApplicationWindow(new Application(new Configuration(configFilePath), loader), filePathOrUrl, username, password, limit).setVisible(true);
+        String concurrencyString = (String) parser.getOptionValue(concurrencyOption);
+        if (concurrencyString != null) { loader.setConcurrency(Integer.parseInt(concurrencyString)); }
+        String heapBudgetString = (String) parser.getOptionValue(heapBudgetOption);
+        if (heapBudgetString != null) { loader.setHeapBudget(Long.parseLong(heapBudgetString) * 1024 * 1024); }
+        String maxDiffBytesString = (String) parser.getOptionValue(maxDiffBytesOption);
+        if (maxDiffBytesString != null) { loader.setMaxDiffBytes(Long.parseLong(maxDiffBytesString)); }
+        String maxDiffLinesString = (String) parser.getOptionValue(maxDiffLinesOption);
+        if (maxDiffLinesString != null) { loader.setMaxDiffLines(Long.parseLong(maxDiffLinesString)); }
+        loader.setHistoryFilter(HistoryFilter.parse((String) parser.getOptionValue(sinceOption), (String) parser.getOptionValue(untilOption), (String) parser.getOptionValue(authorOption)));
+        if (loader instanceof SvnLoader) { ((SvnLoader) loader).setDeltaMode(((Boolean) parser.getOptionValue(deltasOption, Boolean.FALSE)).booleanValue()); }
+        Configuration configuration = new Configuration(configFilePath);
+        if (loader instanceof GitLoader && ((Boolean) parser.getOptionValue(pathIndexOption, Boolean.FALSE)).booleanValue() && configuration.getCacheDirectory() != null) {
+            ((GitLoader) loader).setPathIndexDirectory(new File(configuration.getCacheDirectory(), "changed-paths"));
+        }
+        Application application = new Application(configuration, loader);
+        String diffAlgorithmName = (String) parser.getOptionValue(diffAlgorithmOption, configuration.get("diffAlgorithm", DiffAlgorithms.NAMES[0]));
+        try {
+            application.setDiffAlgorithm(diffAlgorithmName);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid diff algorithm " + diffAlgorithmName);
+            System.exit(1);
+            return;
+        }
+        String contextString = (String) parser.getOptionValue(contextOption);
+        application.setDifferenceContext(contextString == null ? configuration.getInt("differenceContext", DiffHelper.DEFAULT_CONTEXT) : Integer.parseInt(contextString));
+        new ApplicationWindow(application, filePathOrUrl, username, password, limit).setVisible(true);
     }
 
 
@@ -76,11 +120,35 @@ public class Application {
     /** The loader to use on the repository */
     private ScmLoader loader;
 
-    /** Cache of revision Diffs, keyed by "revision-number-1, revision-number-2" */
+    /** Cache of revision Diffs showing all lines, keyed by "revision-number-1, revision-number-2" */
     private Map diffCache = new HashMap();
 
+    /** Ids for the lines of the Revisions, shared by all their diffs */
+    private LineDictionary lineDictionary = new LineDictionary();
+
+    /** The words that changed in modified lines, keyed by the ids of the lineDictionary and shared by all the diffs */
+    private InlineDiff inlineDiff = new InlineDiff();
+
+    /** The algorithm that finds the lines that differ between revisions */
+    private DiffAlgorithm diffAlgorithm = DiffAlgorithms.DEFAULT;
+
+    /** The name of the diffAlgorithm */
+    private String diffAlgorithmName = DiffAlgorithms.NAMES[0];
+
+    /** The number of lines shown before and after each difference when hiding identical lines */
+    private int differenceContext = DiffHelper.DEFAULT_CONTEXT;
+
     /** The Revisions for the file being examined. */
-    private List revisions = new ArrayList();
+    private volatile List revisions = new ArrayList();
+
+    /** Number of revisions published so far for the file being loaded */
+    private int publishedCount = 0;
+
+    /** The file whose revisions were loaded, or null if none have been */
+    private String filePathOrUrl;
+
+    /** The maximum number of revisions requested for the file */
+    private int limit;
 
     /**
      * Creates a new Application.
@@ -90,6 +158,7 @@ public class Application {
     public Application(Configuration configuration, ScmLoader loader) {
         this.configuration = configuration;
         this.loader = loader;
+        if (configuration.getCacheDirectory() != null) { loader.setRevisionStore(new RevisionStore(configuration.getCacheDirectory())); }
     }
 
     /**
@@ -110,11 +179,77 @@ public class Application {
      * @return  a comparison of the lines in each revision
      */
     public Diff diff(Revision a, Revision b, boolean showDifferencesOnly) {
-        String key = a.getRevisionNumber() + ", " + b.getRevisionNumber() + ", " + (showDifferencesOnly ? "differences only" : "all");
+        String key = a.getRevisionNumber() + ", " + b.getRevisionNumber();
+        if (! diffCache.containsKey(key) && a.hasSameContents(b)) {
+            // E.g., a merge or a property change; skip reading and comparing the contents
+            String description = "No textual change from revision " + a.getRevisionNumber();
+            diffCache.put(key, DiffHelper.summaryDiff(description, description));
+        }
+        if (! diffCache.containsKey(key) && (loader.classify(a) != Revision.NORMAL || loader.classify(b) != Revision.NORMAL)) {
+            diffCache.put(key, DiffHelper.summaryDiff(describe(a), describe(b)));
+        }
         if (! diffCache.containsKey(key)) {
-            diffCache.put(key, DiffHelper.diff(a.getContents(), b.getContents(), showDifferencesOnly));
+            diffCache.put(key, DiffHelper.diff(a.getLineIds(lineDictionary), b.getLineIds(lineDictionary), lineDictionary, diffAlgorithm, inlineDiff));
         }
-        return (Diff) diffCache.get(key);
+        Diff diff = (Diff) diffCache.get(key);
+        return showDifferencesOnly ? diff.differencesOnly(differenceContext) : diff;
+    }
+
+    /**
+     * Returns the number of lines shown before and after each difference when hiding
+     * identical lines.
+     *
+     * @return  the number of lines of context
+     */
+    public int getDifferenceContext() {
+        return differenceContext;
+    }
+
+    /**
+     * Sets the number of lines shown before and after each difference when hiding
+     * identical lines. The cached diffs are kept, as the view is derived from them.
+     *
+     * @param differenceContext  the number of lines of context
+     */
+    public void setDifferenceContext(int differenceContext) {
+        this.differenceContext = Math.max(0, differenceContext);
+    }
+
+    /**
+     * Returns the name of the algorithm that finds the lines that differ between revisions.
+     *
+     * @return  one of DiffAlgorithms.NAMES
+     */
+    public String getDiffAlgorithmName() {
+        return diffAlgorithmName;
+    }
+
+    /**
+     * Sets the algorithm that finds the lines that differ between revisions, discarding
+     * the diffs computed with the previous one.
+     *
+     * @param diffAlgorithmName  one of DiffAlgorithms.NAMES
+     * @throws IllegalArgumentException  if there is no algorithm by that name
+     */
+    public void setDiffAlgorithm(String diffAlgorithmName) {
+        if (diffAlgorithmName.equals(this.diffAlgorithmName)) { return; }
+        diffAlgorithm = DiffAlgorithms.create(diffAlgorithmName);
+        this.diffAlgorithmName = diffAlgorithmName;
+        diffCache = new HashMap();
+    }
+
+    /**
+     * Describes a revision that is not compared line by line.
+     *
+     * @param revision  the revision
+     * @return  the kind of file, its size, and the hash of its contents
+     */
+    private String describe(Revision revision) {
+        byte[] bytes = revision.getBytes();
+        if (bytes == null) { return "Contents not available"; }
+        int kind = loader.classify(revision);
+        String description = kind == Revision.BINARY ? "Binary file" : kind == Revision.OVERSIZED ? "File too large to compare" : "Text file";
+        return description + ", " + bytes.length + " bytes, SHA-1 " + RevisionStore.hash(bytes);
     }
 
     /**
@@ -125,23 +260,82 @@ public class Application {
      * @param username  username, or an empty string for anonymous
      * @param password  password, or an empty string for anonymous
      * @param limit  maximum number of revisions to download
+     * @param afterPublish  operation to run on the loading thread each time the loader publishes a revision, or null
      * @param afterLoad  operation to run after the load finishes
+     * @see #publishRevisions(List)
      */
-    public void load(final ScmLoader loader, String filePathOrUrl, String username, String password, int limit, final Closure afterLoad) throws Exception {
+    public void load(final ScmLoader loader, final String filePathOrUrl, String username, String password, final int limit, Closure afterPublish, final Closure afterLoad) throws Exception {
     	loader.setPassword(password);
     	loader.setUsername(username);
-        loader.loadRevisions(filePathOrUrl, limit, new Closure() {
+        publishedCount = 0;
+        loader.loadRevisions(filePathOrUrl, limit, afterPublish, new Closure() {
             public void execute() throws Exception {
                 List revisions = loader.getRevisions();
                 if (revisions.size() == 0) { throw new Exception("No revisions found"); }
                 if (revisions.size() == 1) { throw new Exception("Only one revision found"); }
-                Application.this.revisions = revisions;
-                diffCache = new HashMap();
+                Application.this.filePathOrUrl = filePathOrUrl;
+                Application.this.limit = limit;
                 afterLoad.execute();
             }
         });
     }
 
+    /**
+     * Makes the given revisions the Revisions being examined. During a load, each
+     * list passed in holds the revisions of the one before it plus older ones, so
+     * the index of a revision shifts by the number of revisions added. Call this
+     * from the thread that reads the Revisions.
+     *
+     * @param revisions  the revisions published or loaded so far, oldest first
+     * @return  the number of revisions added at the front, which is the size of the
+     *          list for the first revisions of a load; or 0 if nothing changed
+     */
+    public int publishRevisions(List revisions) {
+        if (revisions.size() < 2 || revisions.size() <= publishedCount) { return 0; }
+        if (publishedCount == 0) {
+            diffCache = new HashMap();
+            lineDictionary = new LineDictionary();
+            inlineDiff = new InlineDiff();
+        }
+        int added = revisions.size() - publishedCount;
+        publishedCount = revisions.size();
+        this.revisions = revisions;
+        return added;
+    }
+
+    /**
+     * Loads the revisions made to the file since it was loaded, and appends them
+     * to the Revisions. Diffs computed so far remain cached.
+     *
+     * @param loader The loader to use (git/svn, etc)
+     * @param afterLoad  operation to run after the refresh finishes
+     */
+    public void refresh(final ScmLoader loader, final Closure afterLoad) throws Exception {
+        if (filePathOrUrl == null) { throw new Exception("No file has been loaded"); }
+        Revision newest = (Revision) revisions.get(revisions.size() - 1);
+        loader.refreshRevisions(filePathOrUrl, newest, limit, new Closure() {
+            public void execute() throws Exception {
+                List newRevisions = loader.getRevisions();
+                if (newRevisions.size() > 0) {
+                    List revisions = new ArrayList(Application.this.revisions);
+                    revisions.addAll(newRevisions);
+                    if (limit > 0 && revisions.size() > limit) { revisions = new ArrayList(revisions.subList(revisions.size() - limit, revisions.size())); }
+                    Application.this.revisions = revisions;
+                }
+                afterLoad.execute();
+            }
+        });
+    }
+
+    /**
+     * Returns the file whose revisions were loaded.
+     *
+     * @return  Subversion URL or working-copy file path, or null if nothing has been loaded
+     */
+    public String getFilePathOrUrl() {
+        return filePathOrUrl;
+    }
+
     /**
      * Returns the Revisions for the file being examined.
      *
@@ -89,6 +89,12 @@ public class ApplicationWindow extends JFrame {
     /** The panel that prompts the user to enter a file path, username, and password. */
     private LoadPanel loadPanel;
 
+    /** Whether an update for newly published revisions is waiting on the event thread. */
+    private volatile boolean publishPending = false;
+
+    /** Identifies the most recent load, so that updates from earlier loads are ignored. */
+    private Object currentLoad;
+
     /**
      * Creates a new ViewerFrame.
      *
@@ -318,24 +324,85 @@ public class ApplicationWindow extends JFrame {
      * @param limit  maximum number of revisions to download
      */
     public void load(final String filePathOrUrl, final String username, final String password, final boolean rememberPassword, final int limit) throws Exception {
-        application.load(application.getLoader(), filePathOrUrl, username, password, limit, new Closure() {
+        final Object load = new Object();
+        currentLoad = load;
+        Closure afterPublish = new Closure() {
+            public void execute() throws Exception {
+                if (publishPending) { return; }
+                publishPending = true;
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        publishPending = false;
+                        if (currentLoad == load) { showRevisions(application.getLoader().getPublishedRevisions(), filePathOrUrl); }
+                    }
+                });
+            }
+        };
+        application.load(application.getLoader(), filePathOrUrl, username, password, limit, afterPublish, new Closure() {
             public void execute() throws Exception {
                 GuiHelper.invokeOnEventThread(new Runnable() {
                     public void run() {
                         MiscHelper.handleExceptions(new Closure() {
                             public void execute() throws Exception {
-                                setTitle(filePathOrUrl);
-                                setHorizontalScrollBarValue(0);
-                                setVerticalScrollBarValue(0);
+                                if (currentLoad != load) { return; }
+                                showRevisions(application.getLoader().getRevisions(), filePathOrUrl);
                                 application.getConfiguration().set("url", filePathOrUrl);
                                 application.getConfiguration().set("username", username);
                                 application.getConfiguration().setInt("limit", limit);
                                 setPassword(password, rememberPassword, application.getConfiguration());
                                 loadPanel.read(application.getConfiguration());
-                                slider.setMinimum(1);
-                                slider.setMaximum(application.getRevisions().size() - 1);
-                                slider.setValue(slider.getMaximum());
-                                slider.setPaintTicks(application.getRevisions().size() < 100);
+                            }
+                        });
+                    }
+                });
+            }
+        });
+        loadPanel.showProgressPanel();
+    }
+
+    /**
+     * Extends the slider over the revisions published or loaded so far. The first
+     * revisions of a load are shown from the newest; after that, the slider keeps
+     * pointing at the same revisions as older ones are added.
+     *
+     * @param revisions  the revisions published or loaded so far, oldest first
+     * @param filePathOrUrl  Subversion URL or working-copy file path
+     */
+    private void showRevisions(List revisions, String filePathOrUrl) {
+        int added = application.publishRevisions(revisions);
+        if (added == 0) { return; }
+        boolean first = added == revisions.size();
+        if (first) {
+            setTitle(filePathOrUrl);
+            setHorizontalScrollBarValue(0);
+            setVerticalScrollBarValue(0);
+        }
+        int value = first ? revisions.size() - 1 : slider.getValue() + added;
+        slider.setMinimum(1);
+        slider.setMaximum(revisions.size() - 1);
+        slider.setValue(value);
+        slider.setPaintTicks(revisions.size() < 100);
+    }
+
+    /**
+     * Loads the revisions made to the file since it was loaded. The displayed
+     * revision stays the same, unless it was the newest, in which case the new
+     * newest revision is displayed.
+     */
+    public void refresh() throws Exception {
+        List revisions = application.getRevisions();
+        final Revision currentRevision = (Revision) revisions.get(Math.min(slider.getValue(), revisions.size() - 1));
+        final boolean showingNewest = slider.getValue() == slider.getMaximum();
+        application.refresh(application.getLoader(), new Closure() {
+            public void execute() throws Exception {
+                GuiHelper.invokeOnEventThread(new Runnable() {
+                    public void run() {
+                        MiscHelper.handleExceptions(new Closure() {
+                            public void execute() throws Exception {
+                                List revisions = application.getRevisions();
+                                slider.setMaximum(revisions.size() - 1);
+                                slider.setValue(showingNewest ? slider.getMaximum() : Math.max(1, revisions.indexOf(currentRevision)));
+                                slider.setPaintTicks(revisions.size() < 100);
                             }
                         });
                     }
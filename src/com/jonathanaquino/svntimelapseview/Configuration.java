@@ -59,6 +59,16 @@ public class Configuration {
         return filePath != null && ! filePath.equals("");
     }
 
+    /**
+     * Returns the directory for cached revisions, next to the config file.
+     *
+     * @return  the cache directory, or null if the config filename has not been specified
+     */
+    public File getCacheDirectory() {
+        if (! filePathSpecified()) { return null; }
+        return new File(new File(filePath).getAbsoluteFile().getParentFile(), "svn_time_lapse_view_cache");
+    }
+
     /**
      * Returns the value corresponding to the given key
      *
@@ -1,23 +1,64 @@
 package com.jonathanaquino.svntimelapseview;
 
+import java.lang.ref.SoftReference;
+import java.util.Collections;
 import java.util.List;
 
+import com.jonathanaquino.svntimelapseview.diff.Alignment;
+import com.jonathanaquino.svntimelapseview.diff.InlineDiff;
+import com.jonathanaquino.svntimelapseview.helpers.DiffHelper;
+
 /**
- * The set of differences between two text files.
+ * The set of differences between two text files. The HTML and text for the two sides
+ * are rendered from the rows of the diff when first requested, and held softly so
+ * that cached diffs keep only their rows and lines once memory runs short.
  */
 public class Diff {
 
-    /** HTML for the left side of the diff */
-    private String leftHtml;
+    /** The rows of the diff, or null if the HTML and text were given up front */
+    private Alignment alignment;
+
+    /** The lines of the left file */
+    private String[] leftLines;
+
+    /** The lines of the right file */
+    private String[] rightLines;
+
+    /** The ids of the lines of the left file */
+    private int[] leftLineIds;
+
+    /** The ids of the lines of the right file */
+    private int[] rightLineIds;
+
+    /** The number of characters to pad the line numbers up to */
+    private int lineNumberWidth;
+
+    /** HTML for the left and right sides, if given up front */
+    private String[] html;
+
+    /** Text for the left and right sides, if given up front */
+    private String[] text;
+
+    /** Finds the words that changed in modified lines, or null to highlight them as a whole */
+    private InlineDiff inlineDiff;
+
+    /** HTML for the left and right sides, once rendered */
+    private SoftReference htmlReference;
 
-    /** HTML for the right side of the diff */
-    private String rightHtml;
+    /** Text for the left and right sides, once rendered */
+    private SoftReference textReference;
 
-    /** Text for the left side of the diff */
-    private String leftText;
+    /** The Hunks in which the files differ, or null if the files were not compared line by line */
+    private List hunks;
 
-    /** Text for the right side of the diff */
-    private String rightText;
+    /** Whether each row is a difference, or null if the HTML and text were given up front */
+    private boolean[] differenceFlags;
+
+    /** The view of this diff showing differences only, once derived */
+    private Diff differencesOnly;
+
+    /** The number of lines of context around the differences in differencesOnly */
+    private int differencesOnlyContext;
 
     /** Zero-based line numbers at which differences start. */
     private List<Integer> differencePositions;
@@ -33,13 +74,40 @@ public class Diff {
      * @param rightText  text for the right side of the diff
      */
     public Diff(int numLines, String leftHtml, String rightHtml, String leftText, String rightText, List differencePositions) {
-        this.leftHtml = leftHtml;
-        this.rightHtml = rightHtml;
-        this.leftText = leftText;
-        this.rightText = rightText;
+        this.html = new String[] { leftHtml, rightHtml };
+        this.text = new String[] { leftText, rightText };
         this.differencePositions = differencePositions;
         this.numLines = numLines;
     }
+
+    /**
+     * Creates a new Diff that renders its HTML and text when they are requested.
+     *
+     * @param alignment  the rows of the diff
+     * @param leftLines  the lines of the left file
+     * @param rightLines  the lines of the right file
+     * @param leftLineIds  the ids of the lines of the left file
+     * @param rightLineIds  the ids of the lines of the right file
+     * @param lineNumberWidth  the number of characters to pad the line numbers up to
+     * @param hunks  the Hunks in which the files differ
+     * @param differenceFlags  whether each row is a difference
+     * @param differencePositions  zero-based line numbers at which differences start
+     * @param inlineDiff  finds the words that changed in modified lines, keyed by the
+     *          same line ids; or null to highlight modified lines as a whole
+     */
+    public Diff(Alignment alignment, String[] leftLines, String[] rightLines, int[] leftLineIds, int[] rightLineIds, int lineNumberWidth, List hunks, boolean[] differenceFlags, List differencePositions, InlineDiff inlineDiff) {
+        this.alignment = alignment;
+        this.leftLines = leftLines;
+        this.rightLines = rightLines;
+        this.leftLineIds = leftLineIds;
+        this.rightLineIds = rightLineIds;
+        this.inlineDiff = inlineDiff;
+        this.lineNumberWidth = lineNumberWidth;
+        this.hunks = hunks;
+        this.differenceFlags = differenceFlags;
+        this.differencePositions = differencePositions;
+        this.numLines = alignment.size();
+    }
     
     public int numLines() {
     	return numLines;
@@ -51,7 +119,7 @@ public class Diff {
      * @return  the plain-HTML version, used by the unit tests
      */
     public String getLeftHtml() {
-        return leftHtml;
+        return html()[0];
     }
 
     /**
@@ -60,7 +128,7 @@ public class Diff {
      * @return  the plain-HTML version, used by the unit tests
      */
     public String getRightHtml() {
-        return rightHtml;
+        return html()[1];
     }
 
     /**
@@ -69,7 +137,7 @@ public class Diff {
      * @return  the plain-text version, used by the unit tests
      */
     public String getLeftText() {
-        return leftText;
+        return text()[0];
     }
 
     /**
@@ -78,7 +146,7 @@ public class Diff {
      * @return  the plain-text version, used by the unit tests
      */
     public String getRightText() {
-        return rightText;
+        return text()[1];
     }
 
     /**
@@ -90,5 +158,63 @@ public class Diff {
         return differencePositions;
     }
 
+    /**
+     * Returns the ranges of lines in which the two files differ.
+     *
+     * @return  the Hunks, in order, or an empty list if the files were not compared
+     *          line by line
+     */
+    public List getHunks() {
+        return hunks == null ? Collections.EMPTY_LIST : Collections.unmodifiableList(hunks);
+    }
+
+    /**
+     * Returns the view of this diff that hides the identical lines, other than a few
+     * lines of context around each difference. The view is derived from the rows of
+     * this diff without comparing the files again.
+     *
+     * @param context  number of lines to show before and after each difference
+     * @return  the rows that differ and their context
+     */
+    public synchronized Diff differencesOnly(int context) {
+        if (alignment == null) { return this; }
+        if (differencesOnly == null || differencesOnlyContext != context) {
+            differencesOnly = DiffHelper.diff(DiffHelper.keepDifferencesOnly(context, differenceFlags, alignment), leftLines, rightLines, leftLineIds, rightLineIds, lineNumberWidth, hunks, inlineDiff);
+            differencesOnlyContext = context;
+        }
+        return differencesOnly;
+    }
+
+    /**
+     * Returns the HTML for the two sides, rendering it if it has not been rendered
+     * or has been reclaimed.
+     *
+     * @return  the left and right HTML
+     */
+    private synchronized String[] html() {
+        if (html != null) { return html; }
+        String[] pair = htmlReference == null ? null : (String[]) htmlReference.get();
+        if (pair == null) {
+            pair = DiffHelper.renderHtml(alignment, leftLines, rightLines, leftLineIds, rightLineIds, lineNumberWidth, inlineDiff);
+            htmlReference = new SoftReference(pair);
+        }
+        return pair;
+    }
+
+    /**
+     * Returns the text for the two sides, rendering it if it has not been rendered
+     * or has been reclaimed.
+     *
+     * @return  the left and right text
+     */
+    private synchronized String[] text() {
+        if (text != null) { return text; }
+        String[] pair = textReference == null ? null : (String[]) textReference.get();
+        if (pair == null) {
+            pair = DiffHelper.renderText(alignment, leftLines, rightLines, lineNumberWidth);
+            textReference = new SoftReference(pair);
+        }
+        return pair;
+    }
 
 }
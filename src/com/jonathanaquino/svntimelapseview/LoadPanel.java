@@ -21,6 +21,7 @@ import javax.swing.Timer;
 import com.jonathanaquino.svntimelapseview.helpers.GuiHelper;
 import com.jonathanaquino.svntimelapseview.helpers.MiscHelper;
 import com.jonathanaquino.svntimelapseview.helpers.Rot13;
+import com.jonathanaquino.svntimelapseview.scm.HistoryFilter;
 import com.jonathanaquino.svntimelapseview.scm.ScmLoader;
 
 /**
@@ -31,6 +32,9 @@ public class LoadPanel extends JPanel {
     /** Button that initiates the load. */
     JButton loadButton = new JButton("Load");
 
+    /** Button that loads the revisions made since the last load. */
+    private JButton refreshButton = new JButton("Refresh");
+
     /** Text field for entering the Subversion URL for the file. */
     private JTextField urlField = GuiHelper.pressOnEnterKey(new JTextField(30), loadButton);
 
@@ -46,6 +50,15 @@ public class LoadPanel extends JPanel {
     /** Text field for entering the maximum number of revisions to retrieve. */
     private JTextField limitField = GuiHelper.pressOnEnterKey(new JTextField(5), loadButton);
 
+    /** Text field for entering the first day of the commits to retrieve. */
+    private JTextField sinceField = GuiHelper.pressOnEnterKey(new JTextField(7), loadButton);
+
+    /** Text field for entering the last day of the commits to retrieve. */
+    private JTextField untilField = GuiHelper.pressOnEnterKey(new JTextField(7), loadButton);
+
+    /** Text field for entering the author of the commits to retrieve. */
+    private JTextField authorField = GuiHelper.pressOnEnterKey(new JTextField(8), loadButton);
+
     /** Label for displaying brief descriptions of the load progress. */
     private JLabel statusLabel = new JLabel();
 
@@ -123,10 +136,23 @@ public class LoadPanel extends JPanel {
         fieldPanel.add(urlField);
         fieldPanel.add(createBrowseButton());
         JLabel limitLabel = new JLabel("Limit:");
-        limitLabel.setToolTipText("Maximum number of revisions to retrieve");
+        limitLabel.setToolTipText("Maximum number of revisions to retrieve (0 for all)");
         fieldPanel.add(limitLabel);
         fieldPanel.add(limitField);
-        if (!"git".equals(scm)) {
+        if ("git".equals(scm)) {
+            JLabel sinceLabel = new JLabel("Since:");
+            sinceLabel.setToolTipText("First day of the commits to retrieve, as yyyy-mm-dd (blank for no limit)");
+            fieldPanel.add(sinceLabel);
+            fieldPanel.add(sinceField);
+            JLabel untilLabel = new JLabel("Until:");
+            untilLabel.setToolTipText("Last day of the commits to retrieve, as yyyy-mm-dd (blank for no limit)");
+            fieldPanel.add(untilLabel);
+            fieldPanel.add(untilField);
+            JLabel authorLabel = new JLabel("Author:");
+            authorLabel.setToolTipText("Name or email of the author of the commits to retrieve (blank for any)");
+            fieldPanel.add(authorLabel);
+            fieldPanel.add(authorField);
+        } else {
             JLabel usernameLabel = new JLabel("User:");
             usernameLabel.setToolTipText("Your username (if any)");
             fieldPanel.add(usernameLabel);
@@ -151,12 +177,28 @@ public class LoadPanel extends JPanel {
             public void actionPerformed(ActionEvent e) {
                 MiscHelper.handleExceptions(new Closure() {
                     public void execute() throws Exception {
+                        setHistoryFilter();
                         applicationWindow.load(urlField.getText(), usernameField.getText(), String.valueOf(passwordField.getPassword()), rememberPasswordCheckBox.isSelected(), Integer.parseInt(limitField.getText()));
                     }
                 });
             }
         });
         fieldPanel.add(loadButton);       
+        refreshButton.setToolTipText("Load only the revisions made since the last load");
+        refreshButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                MiscHelper.handleExceptions(new Closure() {
+                    public void execute() throws Exception {
+                        if (applicationWindow.getApplication().getFilePathOrUrl() == null) {
+                            loadButton.doClick();
+                        } else {
+                            applicationWindow.refresh();
+                        }
+                    }
+                });
+            }
+        });
+        fieldPanel.add(refreshButton);
         read(configuration);
     }
 
@@ -175,6 +217,7 @@ public class LoadPanel extends JPanel {
                             if (directory != null && directory.exists()) { getFileChooser().setCurrentDirectory(directory); }
                             if (JFileChooser.APPROVE_OPTION == getFileChooser().showOpenDialog(applicationWindow)) {
                                 urlField.setText(getFileChooser().getSelectedFile().getPath());
+                                setHistoryFilter();
                                 applicationWindow.load(urlField.getText(), usernameField.getText(), String.valueOf(passwordField.getPassword()), rememberPasswordCheckBox.isSelected(), Integer.parseInt(limitField.getText()));
                             }
                         }
@@ -198,6 +241,18 @@ public class LoadPanel extends JPanel {
         rememberPasswordCheckBox.setSelected(configuration.getBoolean("rememberPassword", true));
     }
         limitField.setText(configuration.get("limit", "100"));
+        HistoryFilter filter = applicationWindow.getApplication().getLoader().getHistoryFilter();
+        sinceField.setText(HistoryFilter.formatDay(filter.getSince()));
+        untilField.setText(HistoryFilter.formatDay(filter.getUntil()));
+        authorField.setText(filter.getAuthor() == null ? "" : filter.getAuthor());
+    }
+
+    /**
+     * Restricts the next load to the date range and author entered.
+     */
+    private void setHistoryFilter() throws Exception {
+        if (!"git".equals(scm)) { return; }
+        applicationWindow.getApplication().getLoader().setHistoryFilter(HistoryFilter.parse(sinceField.getText(), untilField.getText(), authorField.getText()));
     }
     
     /**
@@ -24,13 +24,9 @@ import javax.swing.tree.TreePath;
 import org.tmatesoft.svn.core.SVNDirEntry;
 import org.tmatesoft.svn.core.SVNException;
 import org.tmatesoft.svn.core.SVNNodeKind;
-import org.tmatesoft.svn.core.SVNURL;
-import org.tmatesoft.svn.core.internal.io.dav.DAVRepositoryFactory;
-import org.tmatesoft.svn.core.internal.io.fs.FSRepositoryFactory;
-import org.tmatesoft.svn.core.internal.io.svn.SVNRepositoryFactoryImpl;
 import org.tmatesoft.svn.core.io.SVNRepository;
-import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
-import org.tmatesoft.svn.core.wc.SVNWCUtil;
+
+import com.jonathanaquino.svntimelapseview.scm.SvnSessionPool;
 
 /**
  * A dialog (modal) that displays a browsable tree view of a subversion repository.
@@ -103,7 +99,11 @@ public class RepoBrowserDialog extends JDialog {
         scrollPane.setViewportView(repoTree);
 
         makeUrlVisible(repoUrl);
-        this.setVisible(true);
+        try {
+            this.setVisible(true);
+        } finally {
+            SvnSessionPool.getInstance().release(repository);
+        }
     }
 
     private void makeUrlVisible(String repoUrl) {
@@ -162,19 +162,10 @@ public class RepoBrowserDialog extends JDialog {
         return restOfUrl;
     }
 
-    // TODO: We need this in a central place
     private SVNRepository getRepository(String url, String username,
             String password) {
         try {
-            DAVRepositoryFactory.setup();
-            SVNRepositoryFactoryImpl.setup(); /* svn:// and svn+xxx:// */
-            FSRepositoryFactory.setup(); /* file:// */
-            SVNRepository repository = SVNRepositoryFactory.create(SVNURL
-                    .parseURIEncoded(url));
-            repository.setAuthenticationManager(SVNWCUtil
-                    .createDefaultAuthenticationManager(username, password));
-            repository.setTunnelProvider(SVNWCUtil.createDefaultOptions(true));
-            return repository;
+            return SvnSessionPool.getInstance().lease(url, username, password);
         } catch (SVNException e) {
             throw new RuntimeException(e);
         }
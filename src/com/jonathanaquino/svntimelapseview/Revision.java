@@ -1,10 +1,29 @@
 package com.jonathanaquino.svntimelapseview;
 
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+import com.jonathanaquino.svntimelapseview.helpers.CharsetDetector;
+import com.jonathanaquino.svntimelapseview.storage.ContentStore;
+import com.jonathanaquino.svntimelapseview.storage.LineDictionary;
+
 /**
  * A revision of a file in Subversion
  */
 public class Revision {
 
+    /** The kind of a revision that has not been classified yet */
+    public static final int UNKNOWN = -1;
+
+    /** The kind of a revision whose contents can be compared line by line */
+    public static final int NORMAL = 0;
+
+    /** The kind of a revision whose contents are not text */
+    public static final int BINARY = 1;
+
+    /** The kind of a revision whose contents are too large to compare line by line */
+    public static final int OVERSIZED = 2;
+
     /** The number identifying this revision */
     private Object revisionNumber;
 
@@ -17,9 +36,33 @@ public class Revision {
     /** The log message accompanying the submission of this revision */
     private String logMessage;
 
-    /** The contents of the file that was submitted */
+    /** The contents of the file that was submitted, or null if they are to be decoded from its bytes */
     private String contents;
 
+    /** The store holding the bytes of the file, or null if contents is set */
+    private ContentStore contentStore;
+
+    /** The index of the bytes in the contentStore */
+    private int contentIndex;
+
+    /** Whether the encoding has been determined */
+    private boolean encodingKnown = false;
+
+    /** The encoding of the bytes, or null if they are binary */
+    private String encoding;
+
+    /** A hash of the bytes of the file, as reported by the repository, or null if unknown */
+    private String contentHash;
+
+    /** NORMAL, BINARY, OVERSIZED, or UNKNOWN */
+    private int kind = UNKNOWN;
+
+    /** The dictionary that assigned the lineIds, or null if they have not been computed */
+    private LineDictionary lineDictionary;
+
+    /** The ids of the lines of the contents, from the lineDictionary */
+    private int[] lineIds;
+
     protected Revision() {
     }
 
@@ -31,6 +74,18 @@ public class Revision {
         this.contents = contents;
     }
 
+    public Revision(Object revisionNumber, String author, String date, String logMessage, ContentStore contentStore, int contentIndex, String encoding, int kind) {
+        this.revisionNumber = revisionNumber;
+        this.author = author;
+        this.date = date;
+        this.logMessage = logMessage;
+        this.contentStore = contentStore;
+        this.contentIndex = contentIndex;
+        this.encoding = encoding;
+        this.encodingKnown = true;
+        this.kind = kind;
+    }
+
     /**
      * Returns the number identifying this revision.
      *
@@ -68,12 +123,123 @@ public class Revision {
     }
 
     /**
-     * Returns the contents of the file that was submitted.
+     * Returns whether the file is binary, too large to compare line by line, or normal.
+     *
+     * @return NORMAL, BINARY, OVERSIZED, or UNKNOWN if the revision has not been classified
+     */
+    public synchronized int getKind() {
+        return kind;
+    }
+
+    /**
+     * Records whether the file is binary, too large to compare line by line, or normal.
+     *
+     * @param kind NORMAL, BINARY, or OVERSIZED
+     */
+    public synchronized void setKind(int kind) {
+        this.kind = kind;
+    }
+
+    /**
+     * Returns a hash of the bytes of the file, such as a Git blob id or a Subversion
+     * checksum.
+     *
+     * @return the hash, or null if the repository did not provide one
+     */
+    public synchronized String getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Records a hash of the bytes of the file, such as a Git blob id or a Subversion
+     * checksum. Revisions of the same file with the same hash have identical contents.
+     *
+     * @param contentHash the hash, or null if unknown
+     */
+    public synchronized void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Returns whether this revision and the other are known to have byte-identical
+     * contents, without reading them.
+     *
+     * @param other another revision of the same file
+     * @return whether both have a content hash and the hashes are equal
+     */
+    public boolean hasSameContents(Revision other) {
+        String hash = getContentHash();
+        return hash != null && hash.equals(other.getContentHash());
+    }
+
+    /**
+     * Returns the bytes of the file that was submitted.
+     *
+     * @return the value from Subversion, or null if the revision was given its contents as text
+     */
+    public byte[] getBytes() {
+        if (contentStore == null) { return null; }
+        try {
+            return contentStore.get(contentIndex);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the encoding of the file that was submitted, detecting it from the bytes
+     * the first time.
+     *
+     * @return the name of the encoding, or null if the file is binary
+     */
+    public synchronized String getEncoding() {
+        if (! encodingKnown) {
+            byte[] bytes = contents == null ? getBytes() : null;
+            encoding = bytes == null ? "UTF-8" : CharsetDetector.detect(bytes).getEncoding();
+            encodingKnown = true;
+        }
+        return encoding;
+    }
+
+    /**
+     * Returns whether the file that was submitted is not text.
+     *
+     * @return whether the contents cannot be shown as text
+     */
+    public boolean isBinary() {
+        return getEncoding() == null;
+    }
+
+    /**
+     * Returns the contents of the file that was submitted, decoding them from its
+     * bytes. A binary file is not decoded; it is described in a single line instead.
      *
      * @return the value from Subversion
      */
     public String getContents() {
-        return contents;
+        if (contents != null) { return contents; }
+        byte[] bytes = getBytes();
+        if (bytes == null) { return null; }
+        if (isBinary()) { return "Binary file (" + bytes.length + " bytes)"; }
+        try {
+            return new String(bytes, getEncoding());
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the ids of the lines of the contents, computing them only the first time.
+     *
+     * @param dictionary  the dictionary shared by the revisions of the file
+     * @return  the id of each line of the file, in order
+     */
+    public synchronized int[] getLineIds(LineDictionary dictionary) {
+        if (lineDictionary != dictionary) {
+            lineIds = dictionary.intern(getContents());
+            lineDictionary = dictionary;
+        }
+        return lineIds;
     }
 
 }
@@ -7,14 +7,22 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
+import java.util.Collections;
 import java.util.List;
 
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.JSpinner;
 import javax.swing.JTextField;
+import javax.swing.SpinnerNumberModel;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
+import com.jonathanaquino.svntimelapseview.diff.DiffAlgorithms;
+import com.jonathanaquino.svntimelapseview.helpers.DiffHelper;
 import com.jonathanaquino.svntimelapseview.helpers.GuiHelper;
 import com.jonathanaquino.svntimelapseview.helpers.MiscHelper;
 
@@ -34,6 +42,12 @@ public class SearchPanel extends JPanel {
     
     /** Checkbox for toggling between showing the entire file and showing differences only. */
     private JCheckBox showDifferencesOnlyCheckbox = new JCheckBox("Show differences only");
+
+    /** Spinner for the number of lines shown around each difference when showing differences only. */
+    private JSpinner contextSpinner = new JSpinner(new SpinnerNumberModel(DiffHelper.DEFAULT_CONTEXT, 0, 99, 1));
+
+    /** Drop-down list for choosing the diff algorithm. */
+    private JComboBox diffAlgorithmComboBox = new JComboBox(DiffAlgorithms.NAMES);
     
     private final ApplicationWindow applicationWindow;
     
@@ -91,6 +105,7 @@ public class SearchPanel extends JPanel {
                 MiscHelper.handleExceptions(new Closure() {
                     public void execute() throws Exception {
                         applicationWindow.getApplication().getConfiguration().setBoolean("showDifferencesOnly", isShowingDifferencesOnly());
+                        contextSpinner.setEnabled(isShowingDifferencesOnly());
                         applicationWindow.loadRevision();
                         if (!isShowingDifferencesOnly()) {
                         	gotoPreviousDiff();
@@ -99,8 +114,40 @@ public class SearchPanel extends JPanel {
                 });
             }}
         );
-        add(showDifferencesOnlyCheckbox, new GridBagConstraints(9, 0, 1, 1, 1.0, 0.0, GridBagConstraints.EAST, GridBagConstraints.NONE, new Insets(0, 0, 0, 20), 0, 0));
-        add(differenceCountLabel, new GridBagConstraints(10, 0, 1, 1, 0.0, 0.0, GridBagConstraints.EAST, GridBagConstraints.NONE, new Insets(0, 0, 0, 4), 0, 0));
+        contextSpinner.setValue(new Integer(applicationWindow.getApplication().getDifferenceContext()));
+        contextSpinner.setEnabled(isShowingDifferencesOnly());
+        contextSpinner.setToolTipText("Lines of context around each difference");
+        contextSpinner.addChangeListener(new ChangeListener() {
+            public void stateChanged(ChangeEvent e) {
+                MiscHelper.handleExceptions(new Closure() {
+                    public void execute() throws Exception {
+                        int context = ((Integer) contextSpinner.getValue()).intValue();
+                        if (context == applicationWindow.getApplication().getDifferenceContext()) { return; }
+                        applicationWindow.getApplication().getConfiguration().setInt("differenceContext", context);
+                        applicationWindow.getApplication().setDifferenceContext(context);
+                        applicationWindow.loadRevision();
+                    }
+                });
+            }}
+        );
+        diffAlgorithmComboBox.setSelectedItem(applicationWindow.getApplication().getDiffAlgorithmName());
+        diffAlgorithmComboBox.setToolTipText("Diff algorithm: myers is fastest; histogram keeps moved blocks together; incava is the original");
+        diffAlgorithmComboBox.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                MiscHelper.handleExceptions(new Closure() {
+                    public void execute() throws Exception {
+                        String name = (String) diffAlgorithmComboBox.getSelectedItem();
+                        applicationWindow.getApplication().getConfiguration().set("diffAlgorithm", name);
+                        applicationWindow.getApplication().setDiffAlgorithm(name);
+                        applicationWindow.loadRevision();
+                    }
+                });
+            }}
+        );
+        add(diffAlgorithmComboBox, new GridBagConstraints(8, 0, 1, 1, 1.0, 0.0, GridBagConstraints.EAST, GridBagConstraints.NONE, new Insets(0, 0, 0, 10), 0, 0));
+        add(showDifferencesOnlyCheckbox, new GridBagConstraints(9, 0, 1, 1, 0.0, 0.0, GridBagConstraints.EAST, GridBagConstraints.NONE, new Insets(0, 0, 0, 4), 0, 0));
+        add(contextSpinner, new GridBagConstraints(10, 0, 1, 1, 0.0, 0.0, GridBagConstraints.EAST, GridBagConstraints.NONE, new Insets(0, 0, 0, 20), 0, 0));
+        add(differenceCountLabel, new GridBagConstraints(11, 0, 1, 1, 0.0, 0.0, GridBagConstraints.EAST, GridBagConstraints.NONE, new Insets(0, 0, 0, 4), 0, 0));
         JButton previousButton = GuiHelper.setShortcutKey(new JButton("\u25B2"), KeyEvent.VK_UP, InputEvent.ALT_MASK);
         JButton nextButton = GuiHelper.setShortcutKey(new JButton("\u25BC"), KeyEvent.VK_DOWN, InputEvent.ALT_MASK);
         previousButton.setMargin(new Insets(0, 4, 0, 4));
@@ -152,15 +199,10 @@ public class SearchPanel extends JPanel {
      * @return  the line position of the previous difference
      */
     public int previousDiffPosition(int linePosition, List<Integer> diffPositions) {
-    	float prevPosition = linePosition - 0.5f;
-    	for (int i = diffPositions.size() - 1; i >= 0; i--) {
-    		int position = diffPositions.get(i);
-    		if (position < prevPosition) {
-    			return position;
-    		}
-    	}
-    	// no diffs present before this line
-    	return -1;
+    	int index = Collections.binarySearch(diffPositions, new Integer(linePosition));
+    	int previousIndex = index >= 0 ? index - 1 : -index - 2;
+    	// -1 if no diffs present before this line
+    	return previousIndex >= 0 ? diffPositions.get(previousIndex) : -1;
     }
     
     private int previousDiffPosition() {
@@ -171,15 +213,10 @@ public class SearchPanel extends JPanel {
      * @return  the line position of the next difference
      */
     public int nextDiffPosition(int linePosition, List<Integer> diffPositions) {
-    	float nextPosition = linePosition + 0.5f;
-    	for (int i = 0; i < diffPositions.size(); i++) {
-    		int position = diffPositions.get(i);
-    		if (position > nextPosition) {
-    			return position;
-    		}
-    	}
-    	// no diffs present after this line
-    	return -1;
+    	int index = Collections.binarySearch(diffPositions, new Integer(linePosition));
+    	int nextIndex = index >= 0 ? index + 1 : -index - 1;
+    	// -1 if no diffs present after this line
+    	return nextIndex < diffPositions.size() ? diffPositions.get(nextIndex) : -1;
     }
     
     private int nextDiffPosition() {
@@ -0,0 +1,100 @@
+package com.jonathanaquino.svntimelapseview.diff;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The rows of a side-by-side diff: for each row, the index of the line shown on the
+ * left and of the line shown on the right, or -1 where a side has a gap.
+ */
+public class Alignment {
+
+    /** The zero-based index of the left line of each row, or -1 */
+    private int[] leftLines;
+
+    /** The zero-based index of the right line of each row, or -1 */
+    private int[] rightLines;
+
+    /** The number of rows */
+    private int size;
+
+    /**
+     * Creates a new Alignment.
+     *
+     * @param leftLines  the index of the left line of each row, or -1 for a gap
+     * @param rightLines  the index of the right line of each row, or -1 for a gap
+     * @param size  the number of rows used in the arrays
+     */
+    public Alignment(int[] leftLines, int[] rightLines, int size) {
+        this.leftLines = leftLines;
+        this.rightLines = rightLines;
+        this.size = size;
+    }
+
+    /**
+     * Lines up two files in a single forward pass over their Hunks. Unchanged lines
+     * share a row; within a Hunk the removed and added lines are paired off in order,
+     * and the shorter side is padded with gaps at the end.
+     *
+     * @param hunks  the Hunks from a DiffAlgorithm, in order
+     * @param leftLength  the number of lines in the left file
+     * @return  the rows
+     */
+    public static Alignment create(List hunks, int leftLength) {
+        int size = leftLength;
+        for (Iterator i = hunks.iterator(); i.hasNext(); ) {
+            Hunk hunk = (Hunk) i.next();
+            size += Math.max(0, (hunk.getRightEnd() - hunk.getRightStart()) - (hunk.getLeftEnd() - hunk.getLeftStart()));
+        }
+        int[] leftLines = new int[size];
+        int[] rightLines = new int[size];
+        int row = 0, left = 0, right = 0;
+        for (Iterator i = hunks.iterator(); i.hasNext(); ) {
+            Hunk hunk = (Hunk) i.next();
+            while (left < hunk.getLeftStart()) {
+                leftLines[row] = left++;
+                rightLines[row++] = right++;
+            }
+            int rowCount = Math.max(hunk.getLeftEnd() - hunk.getLeftStart(), hunk.getRightEnd() - hunk.getRightStart());
+            for (int j = 0; j < rowCount; j++) {
+                leftLines[row] = left < hunk.getLeftEnd() ? left++ : -1;
+                rightLines[row++] = right < hunk.getRightEnd() ? right++ : -1;
+            }
+        }
+        while (left < leftLength) {
+            leftLines[row] = left++;
+            rightLines[row++] = right++;
+        }
+        return new Alignment(leftLines, rightLines, size);
+    }
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return  the number of lines in each side of the diff
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the left line of a row.
+     *
+     * @param row  the zero-based row
+     * @return  the zero-based index of the line, or -1 if the left side has a gap
+     */
+    public int getLeftLine(int row) {
+        return leftLines[row];
+    }
+
+    /**
+     * Returns the right line of a row.
+     *
+     * @param row  the zero-based row
+     * @return  the zero-based index of the line, or -1 if the right side has a gap
+     */
+    public int getRightLine(int row) {
+        return rightLines[row];
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.jonathanaquino.svntimelapseview.diff;
+
+import java.util.List;
+
+/**
+ * An algorithm for finding the lines that differ between two files.
+ */
+public interface DiffAlgorithm {
+
+    /**
+     * Compares two files whose lines have been replaced by ids, equal ids meaning
+     * equal lines.
+     *
+     * @param left  the line ids of the first file
+     * @param right  the line ids of the second file
+     * @return  the Hunks, in order, separated by at least one unchanged line
+     */
+    public List diff(int[] left, int[] right);
+
+}
@@ -0,0 +1,28 @@
+package com.jonathanaquino.svntimelapseview.diff;
+
+/**
+ * The diff algorithms that can be chosen by name.
+ */
+public class DiffAlgorithms {
+
+    /** The names of the algorithms, the default first */
+    public static final String[] NAMES = new String[] { "myers", "histogram", "incava" };
+
+    /** The algorithm used unless another is chosen */
+    public static final DiffAlgorithm DEFAULT = new MyersDiff();
+
+    /**
+     * Returns the algorithm with the given name.
+     *
+     * @param name  one of NAMES
+     * @return  the algorithm
+     * @throws IllegalArgumentException  if there is no algorithm by that name
+     */
+    public static DiffAlgorithm create(String name) {
+        if ("myers".equals(name)) { return DEFAULT; }
+        if ("histogram".equals(name)) { return new HistogramDiff(); }
+        if ("incava".equals(name)) { return new IncavaDiff(); }
+        throw new IllegalArgumentException("Unknown diff algorithm " + name);
+    }
+
+}
@@ -0,0 +1,242 @@
+package com.jonathanaquino.svntimelapseview.diff;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A histogram diff, in the style of JGit's HistogramDiff: within each region still to
+ * be compared, the longest common run that contains the least frequent line of the
+ * left side is taken as an anchor, and the regions before and after it are compared
+ * in turn. Anchoring on rare lines, rather than on lines such as "}" and blank lines,
+ * keeps moved and reordered blocks of code together. A region in which every common
+ * line occurs more than maxOccurrences times on the left is handed to MyersDiff.
+ */
+public class HistogramDiff implements DiffAlgorithm {
+
+    /** The default maximum number of times a line may occur on the left to be used as an anchor */
+    public static final int DEFAULT_MAX_OCCURRENCES = 64;
+
+    /** Lines occurring more often than this on the left are not used as anchors */
+    private int maxOccurrences;
+
+    /**
+     * Creates a new HistogramDiff with the default maximum number of occurrences.
+     */
+    public HistogramDiff() {
+        this(DEFAULT_MAX_OCCURRENCES);
+    }
+
+    /**
+     * Creates a new HistogramDiff.
+     *
+     * @param maxOccurrences  lines occurring more often than this on the left are not
+     *          used as anchors
+     */
+    public HistogramDiff(int maxOccurrences) {
+        this.maxOccurrences = maxOccurrences;
+    }
+
+    public List diff(int[] left, int[] right) {
+        boolean[] leftChanged = new boolean[left.length];
+        boolean[] rightChanged = new boolean[right.length];
+        new Comparison(left, right, leftChanged, rightChanged).compare();
+        return MyersDiff.hunks(leftChanged, rightChanged);
+    }
+
+    /**
+     * The state of one comparison: the two files with their lines renumbered from 0,
+     * the occurrences of the lines of the region being examined, and the regions
+     * still to compare.
+     */
+    private class Comparison {
+
+        /** The left file, with dense line ids */
+        private int[] left;
+
+        /** The right file, with dense line ids */
+        private int[] right;
+
+        /** Whether each line of the left file is removed */
+        private boolean[] leftChanged;
+
+        /** Whether each line of the right file is added */
+        private boolean[] rightChanged;
+
+        /** The number of times each line id occurs in the left region being examined */
+        private int[] counts;
+
+        /** The first position of each line id in the left region being examined, or -1 */
+        private int[] firstPositions;
+
+        /** The next position of the same line in the left region, for each left position, or -1 */
+        private int[] nextPositions;
+
+        /** Regions still to compare, as quadruples of leftStart, leftEnd, rightStart, rightEnd */
+        private int[] regions = new int[64];
+
+        /** The number of ints used in regions */
+        private int regionsSize = 0;
+
+        /** Compares the regions without anchors, created when first needed */
+        private MyersDiff.Comparison fallback;
+
+        /** The anchor found last: leftStart, leftEnd, rightStart, rightEnd */
+        private int anchorLeftStart, anchorLeftEnd, anchorRightStart, anchorRightEnd;
+
+        Comparison(int[] left, int[] right, boolean[] leftChanged, boolean[] rightChanged) {
+            this.leftChanged = leftChanged;
+            this.rightChanged = rightChanged;
+            renumber(left, right);
+            nextPositions = new int[left.length];
+        }
+
+        /**
+         * Replaces the line ids of the two files with ids from 0 to the number of
+         * distinct lines, so that the occurrences can be counted in arrays.
+         */
+        private void renumber(int[] originalLeft, int[] originalRight) {
+            int capacity = Integer.highestOneBit(Math.max(1, originalLeft.length + originalRight.length)) * 4;
+            int[] keys = new int[capacity];
+            int[] values = new int[capacity];
+            Arrays.fill(values, -1);
+            int[] size = new int[1];
+            left = renumber(originalLeft, keys, values, size);
+            right = renumber(originalRight, keys, values, size);
+            counts = new int[size[0]];
+            firstPositions = new int[size[0]];
+            Arrays.fill(firstPositions, -1);
+        }
+
+        /**
+         * Looks up the dense id of each line in an open-addressing table, adding the
+         * lines not seen before.
+         *
+         * @param ids  the original line ids
+         * @param keys  the original ids in the table
+         * @param values  the dense ids in the table, or -1 for an empty slot
+         * @param size  a one-element array holding the number of dense ids assigned
+         * @return  the dense line ids
+         */
+        private int[] renumber(int[] ids, int[] keys, int[] values, int[] size) {
+            int mask = keys.length - 1;
+            int[] renumbered = new int[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                int hash = ids[i] * 0x9E3779B9;
+                int slot = (hash ^ hash >>> 16) & mask;
+                while (values[slot] != -1 && keys[slot] != ids[i]) { slot = (slot + 1) & mask; }
+                if (values[slot] == -1) {
+                    keys[slot] = ids[i];
+                    values[slot] = size[0]++;
+                }
+                renumbered[i] = values[slot];
+            }
+            return renumbered;
+        }
+
+        /**
+         * Marks the lines that differ between the two files.
+         */
+        void compare() {
+            push(0, left.length, 0, right.length);
+            while (regionsSize > 0) {
+                regionsSize -= 4;
+                compare(regions[regionsSize], regions[regionsSize + 1], regions[regionsSize + 2], regions[regionsSize + 3]);
+            }
+        }
+
+        /**
+         * Marks the lines that differ in a region, or splits it at an anchor and
+         * pushes the regions on either side.
+         */
+        private void compare(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+            while (leftStart < leftEnd && rightStart < rightEnd && left[leftStart] == right[rightStart]) {
+                leftStart++;
+                rightStart++;
+            }
+            while (leftStart < leftEnd && rightStart < rightEnd && left[leftEnd - 1] == right[rightEnd - 1]) {
+                leftEnd--;
+                rightEnd--;
+            }
+            if (leftStart == leftEnd) {
+                for (int j = rightStart; j < rightEnd; j++) { rightChanged[j] = true; }
+            } else if (rightStart == rightEnd) {
+                for (int i = leftStart; i < leftEnd; i++) { leftChanged[i] = true; }
+            } else if (findAnchor(leftStart, leftEnd, rightStart, rightEnd)) {
+                push(leftStart, anchorLeftStart, rightStart, anchorRightStart);
+                push(anchorLeftEnd, leftEnd, anchorRightEnd, rightEnd);
+            } else {
+                if (fallback == null) { fallback = new MyersDiff.Comparison(left, right, leftChanged, rightChanged); }
+                fallback.compare(leftStart, leftEnd, rightStart, rightEnd);
+            }
+        }
+
+        /**
+         * Finds the common run of lines to anchor the region on: the one containing
+         * the fewest-occurring left line, and the longest among those.
+         *
+         * @return  whether an anchor was found; if so, it is stored in the anchor fields
+         */
+        private boolean findAnchor(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+            for (int i = leftEnd - 1; i >= leftStart; i--) {
+                int id = left[i];
+                nextPositions[i] = firstPositions[id];
+                firstPositions[id] = i;
+                counts[id]++;
+            }
+            int bestLength = 0;
+            int bestCount = maxOccurrences;
+            for (int j = rightStart; j < rightEnd; j++) {
+                int id = right[j];
+                if (counts[id] == 0 || counts[id] > bestCount) { continue; }
+                int furthestRightEnd = j + 1;
+                for (int i = firstPositions[id]; i != -1; i = nextPositions[i]) {
+                    int count = counts[id];
+                    int runLeftStart = i, runRightStart = j, runLeftEnd = i + 1, runRightEnd = j + 1;
+                    while (runLeftStart > leftStart && runRightStart > rightStart && left[runLeftStart - 1] == right[runRightStart - 1]) {
+                        runLeftStart--;
+                        runRightStart--;
+                        count = Math.min(count, counts[left[runLeftStart]]);
+                    }
+                    while (runLeftEnd < leftEnd && runRightEnd < rightEnd && left[runLeftEnd] == right[runRightEnd]) {
+                        count = Math.min(count, counts[left[runLeftEnd]]);
+                        runLeftEnd++;
+                        runRightEnd++;
+                    }
+                    if (count < bestCount || (count == bestCount && runLeftEnd - runLeftStart > bestLength)) {
+                        anchorLeftStart = runLeftStart;
+                        anchorLeftEnd = runLeftEnd;
+                        anchorRightStart = runRightStart;
+                        anchorRightEnd = runRightEnd;
+                        bestLength = runLeftEnd - runLeftStart;
+                        bestCount = count;
+                    }
+                    furthestRightEnd = Math.max(furthestRightEnd, runRightEnd);
+                }
+                // The right lines up to the end of the runs found are part of runs already considered
+                j = furthestRightEnd - 1;
+            }
+            for (int i = leftStart; i < leftEnd; i++) {
+                counts[left[i]] = 0;
+                firstPositions[left[i]] = -1;
+            }
+            return bestLength > 0;
+        }
+
+        /**
+         * Adds a region to those still to compare.
+         */
+        private void push(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+            if (leftStart == leftEnd && rightStart == rightEnd) { return; }
+            if (regionsSize + 4 > regions.length) {
+                int[] newRegions = new int[regions.length * 2];
+                System.arraycopy(regions, 0, newRegions, 0, regionsSize);
+                regions = newRegions;
+            }
+            regions[regionsSize++] = leftStart;
+            regions[regionsSize++] = leftEnd;
+            regions[regionsSize++] = rightStart;
+            regions[regionsSize++] = rightEnd;
+        }
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.jonathanaquino.svntimelapseview.diff;
+
+/**
+ * A run of lines that differ between two files: the lines from leftStart to leftEnd
+ * of the left file are replaced by the lines from rightStart to rightEnd of the right
+ * file. Either range may be empty, for a pure insertion or deletion.
+ */
+public class Hunk {
+
+    /** The zero-based index of the first line of the left range */
+    private int leftStart;
+
+    /** The index after the last line of the left range */
+    private int leftEnd;
+
+    /** The zero-based index of the first line of the right range */
+    private int rightStart;
+
+    /** The index after the last line of the right range */
+    private int rightEnd;
+
+    /**
+     * Creates a new Hunk.
+     *
+     * @param leftStart  the zero-based index of the first line of the left range
+     * @param leftEnd  the index after the last line of the left range
+     * @param rightStart  the zero-based index of the first line of the right range
+     * @param rightEnd  the index after the last line of the right range
+     */
+    public Hunk(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+        this.leftStart = leftStart;
+        this.leftEnd = leftEnd;
+        this.rightStart = rightStart;
+        this.rightEnd = rightEnd;
+    }
+
+    /**
+     * Returns the index of the first line of the left range.
+     *
+     * @return  the zero-based line index
+     */
+    public int getLeftStart() {
+        return leftStart;
+    }
+
+    /**
+     * Returns the index after the last line of the left range.
+     *
+     * @return  leftStart if no left lines are removed
+     */
+    public int getLeftEnd() {
+        return leftEnd;
+    }
+
+    /**
+     * Returns the index of the first line of the right range.
+     *
+     * @return  the zero-based line index
+     */
+    public int getRightStart() {
+        return rightStart;
+    }
+
+    /**
+     * Returns the index after the last line of the right range.
+     *
+     * @return  rightStart if no right lines are added
+     */
+    public int getRightEnd() {
+        return rightEnd;
+    }
+
+    public boolean equals(Object other) {
+        if (! (other instanceof Hunk)) { return false; }
+        Hunk hunk = (Hunk) other;
+        return leftStart == hunk.leftStart && leftEnd == hunk.leftEnd && rightStart == hunk.rightStart && rightEnd == hunk.rightEnd;
+    }
+
+    public int hashCode() {
+        return ((leftStart * 31 + leftEnd) * 31 + rightStart) * 31 + rightEnd;
+    }
+
+    public String toString() {
+        return "[" + leftStart + "," + leftEnd + ")->[" + rightStart + "," + rightEnd + ")";
+    }
+
+}
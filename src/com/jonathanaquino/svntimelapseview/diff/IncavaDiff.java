@@ -0,0 +1,30 @@
+package com.jonathanaquino.svntimelapseview.diff;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.incava.util.diff.Difference;
+import org.incava.util.diff.IntDiff;
+
+/**
+ * The longest-common-subsequence algorithm of org.incava.util.diff, which was the
+ * only algorithm before the others were added. It runs on the line ids through
+ * IntDiff, which gives the same differences as Diff without boxing them.
+ */
+public class IncavaDiff implements DiffAlgorithm {
+
+    public List diff(int[] left, int[] right) {
+        List hunks = new ArrayList();
+        for (Iterator i = new IntDiff(left, right).diff().iterator(); i.hasNext(); ) {
+            Difference difference = (Difference) i.next();
+            int leftStart = difference.getDeletedStart();
+            int leftEnd = difference.getDeletedEnd() == Difference.NONE ? leftStart : difference.getDeletedEnd() + 1;
+            int rightStart = difference.getAddedStart();
+            int rightEnd = difference.getAddedEnd() == Difference.NONE ? rightStart : difference.getAddedEnd() + 1;
+            hunks.add(new Hunk(leftStart, leftEnd, rightStart, rightEnd));
+        }
+        return hunks;
+    }
+
+}
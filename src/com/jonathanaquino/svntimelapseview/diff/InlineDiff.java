@@ -0,0 +1,193 @@
+package com.jonathanaquino.svntimelapseview.diff;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the words and characters that differ between a pair of modified lines. The
+ * lines are split into words, runs of whitespace and punctuation characters, which
+ * are compared with MyersDiff; where a single word replaces another, the characters
+ * they share at either end are left out of the change. Lines that are too long or
+ * too different are left to be highlighted as a whole. The results are memoized by
+ * the LineDictionary ids of the pair of lines, so one InlineDiff can serve every diff
+ * of a file's history: a pair is compared only once however many diffs show it. The
+ * least recently used pairs are forgotten past a maximum number of entries.
+ */
+public class InlineDiff {
+
+    /** The default maximum number of words in a pair of lines compared word by word */
+    public static final int DEFAULT_MAX_TOKENS = 500;
+
+    /** The default maximum number of pairs of lines memoized */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    /** Marks a pair of lines in the memo whose changes are not worth highlighting */
+    private static final int[][] WHOLE_LINE = new int[0][];
+
+    /** Pairs of lines with more words than this are highlighted as whole lines */
+    private int maxTokens;
+
+    /** The maximum number of pairs of lines memoized */
+    private int maxEntries;
+
+    /** The changed ranges of each pair of lines compared, keyed by the pair of line ids; least recently used first */
+    private LinkedHashMap memo = new LinkedHashMap(16, 0.75f, true);
+
+    /**
+     * Creates a new InlineDiff with the default maximum number of words and of memoized pairs.
+     */
+    public InlineDiff() {
+        this(DEFAULT_MAX_TOKENS, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Creates a new InlineDiff.
+     *
+     * @param maxTokens  pairs of lines with more words than this are highlighted as
+     *          whole lines
+     * @param maxEntries  the maximum number of pairs of lines memoized
+     */
+    public InlineDiff(int maxTokens, int maxEntries) {
+        this.maxTokens = maxTokens;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the changed ranges of a pair of lines, comparing them if they have not
+     * been compared before.
+     *
+     * @param leftLineId  the id of the left line, from the LineDictionary shared by the diffs
+     * @param rightLineId  the id of the right line
+     * @param left  the text of the left line
+     * @param right  the text of the right line
+     * @return  the ranges, as returned by diff, or null to highlight the whole lines
+     */
+    public synchronized int[][] ranges(int leftLineId, int rightLineId, String left, String right) {
+        Long key = new Long(((long) leftLineId << 32) | (rightLineId & 0xFFFFFFFFL));
+        int[][] ranges = (int[][]) memo.get(key);
+        if (ranges == null) {
+            ranges = diff(left, right, maxTokens);
+            memo.put(key, ranges == null ? WHOLE_LINE : ranges);
+            for (Iterator i = memo.keySet().iterator(); memo.size() > maxEntries && i.hasNext(); ) {
+                i.next();
+                i.remove();
+            }
+        }
+        return ranges == WHOLE_LINE ? null : ranges;
+    }
+
+    /**
+     * Returns the number of pairs of lines memoized.
+     *
+     * @return  the number of pairs compared and not yet forgotten
+     */
+    public synchronized int size() {
+        return memo.size();
+    }
+
+    /**
+     * Returns the ranges of characters that differ between two lines.
+     *
+     * @param left  the left line
+     * @param right  the right line
+     * @param maxTokens  the maximum number of words in the two lines together
+     * @return  the changed ranges of the left line and of the right line, each as
+     *          start and end offsets, or null if the lines have too many words or
+     *          less than a third of the left line is unchanged
+     */
+    public static int[][] diff(String left, String right, int maxTokens) {
+        int[] leftStarts = tokenize(left);
+        int[] rightStarts = tokenize(right);
+        int leftCount = leftStarts.length - 1;
+        int rightCount = rightStarts.length - 1;
+        if (leftCount + rightCount > maxTokens) { return null; }
+        Map ids = new HashMap();
+        int[] leftIds = ids(left, leftStarts, ids);
+        int[] rightIds = ids(right, rightStarts, ids);
+        List hunks = new MyersDiff().diff(leftIds, rightIds);
+        int changedCount = 0;
+        for (Iterator i = hunks.iterator(); i.hasNext(); ) {
+            Hunk hunk = (Hunk) i.next();
+            changedCount += hunk.getLeftEnd() - hunk.getLeftStart();
+        }
+        if (changedCount == leftCount) { return null; }
+        int changedLength = 0;
+        int[] leftRanges = new int[hunks.size() * 2];
+        int[] rightRanges = new int[hunks.size() * 2];
+        int n = 0;
+        for (Iterator i = hunks.iterator(); i.hasNext(); n += 2) {
+            Hunk hunk = (Hunk) i.next();
+            int leftStart = leftStarts[hunk.getLeftStart()], leftEnd = leftStarts[hunk.getLeftEnd()];
+            int rightStart = rightStarts[hunk.getRightStart()], rightEnd = rightStarts[hunk.getRightEnd()];
+            if (hunk.getLeftEnd() - hunk.getLeftStart() == 1 && hunk.getRightEnd() - hunk.getRightStart() == 1) {
+                while (leftStart < leftEnd && rightStart < rightEnd && left.charAt(leftStart) == right.charAt(rightStart)) {
+                    leftStart++;
+                    rightStart++;
+                }
+                while (leftStart < leftEnd && rightStart < rightEnd && left.charAt(leftEnd - 1) == right.charAt(rightEnd - 1)) {
+                    leftEnd--;
+                    rightEnd--;
+                }
+            }
+            changedLength += leftEnd - leftStart;
+            leftRanges[n] = leftStart;
+            leftRanges[n + 1] = leftEnd;
+            rightRanges[n] = rightStart;
+            rightRanges[n + 1] = rightEnd;
+        }
+        // Lines sharing little more than spaces and punctuation read better highlighted as a whole
+        if ((left.length() - changedLength) * 3 < left.length()) { return null; }
+        return new int[][] { leftRanges, rightRanges };
+    }
+
+    /**
+     * Splits a line into words, runs of whitespace, and single other characters.
+     *
+     * @param line  the line
+     * @return  the offset at which each token starts, followed by the length of the line
+     */
+    private static int[] tokenize(String line) {
+        List starts = new ArrayList();
+        int i = 0;
+        while (i < line.length()) {
+            starts.add(new Integer(i));
+            char c = line.charAt(i++);
+            if (Character.isLetterOrDigit(c) || c == '_') {
+                while (i < line.length() && (Character.isLetterOrDigit(line.charAt(i)) || line.charAt(i) == '_')) { i++; }
+            } else if (Character.isWhitespace(c)) {
+                while (i < line.length() && Character.isWhitespace(line.charAt(i))) { i++; }
+            }
+        }
+        int[] offsets = new int[starts.size() + 1];
+        for (int j = 0; j < starts.size(); j++) { offsets[j] = ((Integer) starts.get(j)).intValue(); }
+        offsets[starts.size()] = line.length();
+        return offsets;
+    }
+
+    /**
+     * Assigns each distinct token an id.
+     *
+     * @param line  the line
+     * @param starts  the offsets of its tokens, followed by its length
+     * @param ids  the ids assigned so far, keyed by token
+     * @return  the id of each token
+     */
+    private static int[] ids(String line, int[] starts, Map ids) {
+        int[] tokenIds = new int[starts.length - 1];
+        for (int i = 0; i < tokenIds.length; i++) {
+            String token = line.substring(starts[i], starts[i + 1]);
+            Integer id = (Integer) ids.get(token);
+            if (id == null) {
+                id = new Integer(ids.size());
+                ids.put(token, id);
+            }
+            tokenIds[i] = id.intValue();
+        }
+        return tokenIds;
+    }
+
+}
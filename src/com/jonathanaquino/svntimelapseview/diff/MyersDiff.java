@@ -0,0 +1,180 @@
+package com.jonathanaquino.svntimelapseview.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Myers' O(ND) difference algorithm with the linear-space refinement: the middle
+ * snake of the shortest edit script is found by searching forward from the start and
+ * backward from the end at the same time, and the halves on either side of it are
+ * compared recursively. Apart from the result, it allocates two diagonal arrays and a
+ * flag per line, however many lines repeat.
+ */
+public class MyersDiff implements DiffAlgorithm {
+
+    public List diff(int[] left, int[] right) {
+        boolean[] leftChanged = new boolean[left.length];
+        boolean[] rightChanged = new boolean[right.length];
+        new Comparison(left, right, leftChanged, rightChanged).compare(0, left.length, 0, right.length);
+        return hunks(leftChanged, rightChanged);
+    }
+
+    /**
+     * Groups the changed lines into Hunks. The unchanged lines of the two files pair
+     * up in order.
+     *
+     * @param leftChanged  whether each line of the left file is removed
+     * @param rightChanged  whether each line of the right file is added
+     * @return  the Hunks, in order
+     */
+    static List hunks(boolean[] leftChanged, boolean[] rightChanged) {
+        List hunks = new ArrayList();
+        int i = 0, j = 0;
+        while (i < leftChanged.length || j < rightChanged.length) {
+            if (i < leftChanged.length && j < rightChanged.length && ! leftChanged[i] && ! rightChanged[j]) {
+                i++;
+                j++;
+                continue;
+            }
+            int leftStart = i, rightStart = j;
+            while (i < leftChanged.length && leftChanged[i]) { i++; }
+            while (j < rightChanged.length && rightChanged[j]) { j++; }
+            hunks.add(new Hunk(leftStart, i, rightStart, j));
+        }
+        return hunks;
+    }
+
+    /**
+     * The state of one comparison: the two files, the furthest-reaching positions on
+     * each diagonal, and the lines found to differ.
+     */
+    static class Comparison {
+
+        /** The line ids of the left file */
+        private int[] left;
+
+        /** The line ids of the right file */
+        private int[] right;
+
+        /** Whether each line of the left file is removed */
+        private boolean[] leftChanged;
+
+        /** Whether each line of the right file is added */
+        private boolean[] rightChanged;
+
+        /** The furthest left index reached on each diagonal searching forward, indexed by diagonal + offset */
+        private int[] forward;
+
+        /** The furthest left index reached on each diagonal searching backward, indexed by diagonal + offset */
+        private int[] backward;
+
+        /** Added to a diagonal (left index minus right index) to give its array index */
+        private int offset;
+
+        /** The end of the middle snake found last: its left index */
+        private int middleLeft;
+
+        /** The end of the middle snake found last: its right index */
+        private int middleRight;
+
+        /**
+         * Creates a new Comparison.
+         *
+         * @param left  the line ids of the left file
+         * @param right  the line ids of the right file
+         * @param leftChanged  receives whether each line of the left file is removed
+         * @param rightChanged  receives whether each line of the right file is added
+         */
+        Comparison(int[] left, int[] right, boolean[] leftChanged, boolean[] rightChanged) {
+            this.left = left;
+            this.right = right;
+            this.leftChanged = leftChanged;
+            this.rightChanged = rightChanged;
+            forward = new int[left.length + right.length + 3];
+            backward = new int[left.length + right.length + 3];
+            offset = right.length + 1;
+        }
+
+        /**
+         * Marks the lines that differ between left[leftStart..leftEnd) and
+         * right[rightStart..rightEnd).
+         */
+        void compare(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+            while (leftStart < leftEnd && rightStart < rightEnd && left[leftStart] == right[rightStart]) {
+                leftStart++;
+                rightStart++;
+            }
+            while (leftStart < leftEnd && rightStart < rightEnd && left[leftEnd - 1] == right[rightEnd - 1]) {
+                leftEnd--;
+                rightEnd--;
+            }
+            if (leftStart == leftEnd) {
+                for (int j = rightStart; j < rightEnd; j++) { rightChanged[j] = true; }
+            } else if (rightStart == rightEnd) {
+                for (int i = leftStart; i < leftEnd; i++) { leftChanged[i] = true; }
+            } else {
+                findMiddleSnake(leftStart, leftEnd, rightStart, rightEnd);
+                int splitLeft = middleLeft, splitRight = middleRight;
+                compare(leftStart, splitLeft, rightStart, splitRight);
+                compare(splitLeft, leftEnd, splitRight, rightEnd);
+            }
+        }
+
+        /**
+         * Finds a point on the middle snake of the shortest edit script of the two
+         * ranges, whose first and last lines differ, and stores it in middleLeft and
+         * middleRight. The two ranges on either side of the point each need about
+         * half as many edits.
+         */
+        private void findMiddleSnake(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+            int minDiagonal = leftStart - rightEnd;
+            int maxDiagonal = leftEnd - rightStart;
+            int forwardMid = leftStart - rightStart;
+            int backwardMid = leftEnd - rightEnd;
+            int forwardMin = forwardMid, forwardMax = forwardMid;
+            int backwardMin = backwardMid, backwardMax = backwardMid;
+            boolean odd = ((forwardMid - backwardMid) & 1) != 0;
+            forward[forwardMid + offset] = leftStart;
+            backward[backwardMid + offset] = leftEnd;
+            while (true) {
+                // Extend the forward search by one edit
+                if (forwardMin > minDiagonal) { forward[--forwardMin - 1 + offset] = -1; } else { ++forwardMin; }
+                if (forwardMax < maxDiagonal) { forward[++forwardMax + 1 + offset] = -1; } else { --forwardMax; }
+                for (int d = forwardMax; d >= forwardMin; d -= 2) {
+                    int low = forward[d - 1 + offset], high = forward[d + 1 + offset];
+                    int x = low >= high ? low + 1 : high;
+                    int y = x - d;
+                    while (x < leftEnd && y < rightEnd && left[x] == right[y]) {
+                        x++;
+                        y++;
+                    }
+                    forward[d + offset] = x;
+                    if (odd && backwardMin <= d && d <= backwardMax && backward[d + offset] <= x) {
+                        middleLeft = x;
+                        middleRight = y;
+                        return;
+                    }
+                }
+                // Extend the backward search by one edit
+                if (backwardMin > minDiagonal) { backward[--backwardMin - 1 + offset] = Integer.MAX_VALUE; } else { ++backwardMin; }
+                if (backwardMax < maxDiagonal) { backward[++backwardMax + 1 + offset] = Integer.MAX_VALUE; } else { --backwardMax; }
+                for (int d = backwardMax; d >= backwardMin; d -= 2) {
+                    int low = backward[d - 1 + offset], high = backward[d + 1 + offset];
+                    int x = low < high ? low : high - 1;
+                    int y = x - d;
+                    while (x > leftStart && y > rightStart && left[x - 1] == right[y - 1]) {
+                        x--;
+                        y--;
+                    }
+                    backward[d + offset] = x;
+                    if (! odd && forwardMin <= d && d <= forwardMax && x <= forward[d + offset]) {
+                        middleLeft = x;
+                        middleRight = y;
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.jonathanaquino.svntimelapseview.helpers;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Determines the character encoding of a file from its bytes as they are written
+ * through it, without keeping or decoding them. Recognizes byte-order marks,
+ * UTF-16 without a byte-order mark (from the zero bytes of mostly-ASCII text),
+ * UTF-8, and falls back to ISO-8859-1. Zero bytes in anything but UTF-16 mark the
+ * file as binary.
+ */
+public class CharsetDetector extends FilterOutputStream {
+
+    /** The number of bytes seen so far */
+    private long byteCount = 0;
+
+    /** The number of \n bytes seen so far */
+    private long lineCount = 0;
+
+    /** The first bytes seen, for recognizing a byte-order mark */
+    private byte[] head = new byte[3];
+
+    /** The number of zero bytes at even offsets */
+    private long evenZeroCount = 0;
+
+    /** The number of zero bytes at odd offsets */
+    private long oddZeroCount = 0;
+
+    /** Whether the bytes so far are valid UTF-8 */
+    private boolean validUtf8 = true;
+
+    /** The number of continuation bytes expected to complete the current UTF-8 sequence */
+    private int pendingContinuationCount = 0;
+
+    /**
+     * Creates a new CharsetDetector that discards the bytes.
+     */
+    public CharsetDetector() {
+        this(null);
+    }
+
+    /**
+     * Creates a new CharsetDetector.
+     *
+     * @param out  the stream to which to pass the bytes on, or null to discard them
+     */
+    public CharsetDetector(OutputStream out) {
+        super(out);
+    }
+
+    /**
+     * Determines the encoding of the given bytes.
+     *
+     * @param bytes  the contents of a file
+     * @return  a detector that has seen the bytes
+     */
+    public static CharsetDetector detect(byte[] bytes) {
+        CharsetDetector detector = new CharsetDetector();
+        detector.update(bytes, 0, bytes.length);
+        return detector;
+    }
+
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        update(bytes, offset, length);
+        if (out != null) { out.write(bytes, offset, length); }
+    }
+
+    public void flush() throws IOException {
+        if (out != null) { out.flush(); }
+    }
+
+    public void close() throws IOException {
+        if (out != null) { out.close(); }
+    }
+
+    /**
+     * Examines more of the bytes of the file.
+     *
+     * @param bytes  a buffer holding the next bytes
+     * @param offset  the position of the first byte in the buffer
+     * @param length  the number of bytes
+     */
+    public void update(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            int b = bytes[i] & 0xFF;
+            if (byteCount < head.length) { head[(int) byteCount] = (byte) b; }
+            if (b == '\n') { lineCount++; }
+            if (b == 0) {
+                if (byteCount % 2 == 0) { evenZeroCount++; } else { oddZeroCount++; }
+            }
+            if (validUtf8) { validUtf8 = updateUtf8(b); }
+            byteCount++;
+        }
+    }
+
+    /**
+     * Advances the UTF-8 validation by one byte.
+     *
+     * @param b  the next byte, from 0 to 255
+     * @return  whether the bytes so far can still be valid UTF-8
+     */
+    private boolean updateUtf8(int b) {
+        if (pendingContinuationCount > 0) {
+            if ((b & 0xC0) != 0x80) { return false; }
+            pendingContinuationCount--;
+        } else if (b >= 0xC2 && b <= 0xDF) {
+            pendingContinuationCount = 1;
+        } else if (b >= 0xE0 && b <= 0xEF) {
+            pendingContinuationCount = 2;
+        } else if (b >= 0xF0 && b <= 0xF4) {
+            pendingContinuationCount = 3;
+        } else if (b >= 0x80) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the encoding indicated by a byte-order mark at the start of the bytes.
+     *
+     * @return  the name of the encoding, or null if there is no byte-order mark
+     */
+    private String byteOrderMarkEncoding() {
+        if (byteCount >= 2 && head[0] == (byte) 0xFF && head[1] == (byte) 0xFE) { return "UTF-16"; }
+        if (byteCount >= 2 && head[0] == (byte) 0xFE && head[1] == (byte) 0xFF) { return "UTF-16"; }
+        if (byteCount >= 3 && head[0] == (byte) 0xEF && head[1] == (byte) 0xBB && head[2] == (byte) 0xBF) { return "UTF-8"; }
+        return null;
+    }
+
+    /**
+     * Returns the encoding of UTF-16 text without a byte-order mark: it has an even
+     * number of bytes, and one byte of most characters of mostly-ASCII text is zero,
+     * always at the same parity.
+     *
+     * @return  UTF-16BE or UTF-16LE, or null if the bytes do not look like UTF-16
+     */
+    private String utf16Encoding() {
+        long characterCount = byteCount / 2;
+        if (characterCount == 0 || byteCount % 2 != 0) { return null; }
+        if (evenZeroCount * 10 >= characterCount * 3 && oddZeroCount * 20 <= characterCount) { return "UTF-16BE"; }
+        if (oddZeroCount * 10 >= characterCount * 3 && evenZeroCount * 20 <= characterCount) { return "UTF-16LE"; }
+        return null;
+    }
+
+    /**
+     * Returns the encoding of the bytes seen so far.
+     *
+     * @return  the name of the encoding with which to decode the bytes, or null if they are binary
+     */
+    public String getEncoding() {
+        String encoding = byteOrderMarkEncoding();
+        if (encoding != null) { return encoding; }
+        encoding = utf16Encoding();
+        if (encoding != null) { return encoding; }
+        if (evenZeroCount + oddZeroCount > 0) { return null; }
+        return validUtf8 && pendingContinuationCount == 0 ? "UTF-8" : "ISO-8859-1";
+    }
+
+    /**
+     * Returns whether the bytes seen so far are not text.
+     *
+     * @return  whether the bytes contain zero bytes and are not UTF-16
+     */
+    public boolean isBinary() {
+        return getEncoding() == null;
+    }
+
+    /**
+     * Returns the number of bytes seen so far.
+     *
+     * @return  the number of bytes examined
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * Returns the number of line feeds seen so far.
+     *
+     * @return  the number of \n bytes, which for text other than UTF-16 is the number of lines
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+}
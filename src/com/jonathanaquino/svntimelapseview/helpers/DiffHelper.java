@@ -1,21 +1,32 @@
 package com.jonathanaquino.svntimelapseview.helpers;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.StringUtils;
-import org.incava.util.diff.Difference;
 
 import com.jonathanaquino.svntimelapseview.Diff;
+import com.jonathanaquino.svntimelapseview.diff.Alignment;
+import com.jonathanaquino.svntimelapseview.diff.DiffAlgorithm;
+import com.jonathanaquino.svntimelapseview.diff.DiffAlgorithms;
+import com.jonathanaquino.svntimelapseview.diff.InlineDiff;
+import com.jonathanaquino.svntimelapseview.storage.LineDictionary;
 
 /**
  * Utility functions for diffing files.
  */
 public class DiffHelper {
 
+    /** The default number of lines to show before and after each difference when hiding identical lines */
+    public static final int DEFAULT_CONTEXT = 3;
+
+    /** Opening tag for the words and characters that changed within a modified line */
+    private static final String CHANGE_OPENING_TAG = "<span style='background-color: #6FA3DE'>";
+
+    /** The number of blank rows shown in place of each run of hidden lines */
+    private static final int SEPARATOR_ROW_COUNT = 3;
+
     /**
      * Returns a diff of two text files
      *
@@ -25,69 +36,221 @@ public class DiffHelper {
      * @return  the lines that differ
      */
     public static Diff diff(String leftFileContents, String rightFileContents, boolean showDifferencesOnly) {
-        String[] leftFileLines = split(leftFileContents);
-        String[] rightFileLines = split(rightFileContents);
-        List leftLineNumbers = lineNumbers(leftFileLines);
-        List rightLineNumbers = lineNumbers(rightFileLines);
-        List differences = new org.incava.util.diff.Diff(leftFileLines, rightFileLines).diff();
-        Collections.reverse(differences);
-        for (Iterator i = differences.iterator(); i.hasNext(); ) {
-            Difference difference = (Difference) i.next();
-            int leftStart = difference.getDeletedStart();
-            int leftEnd = difference.getDeletedEnd() == Difference.NONE ? leftStart : difference.getDeletedEnd() + 1;
-            int rightStart = difference.getAddedStart();
-            int rightEnd = difference.getAddedEnd() == Difference.NONE ? rightStart : difference.getAddedEnd() + 1;
-            int leftExtraLineCount = (leftEnd-leftStart) - (rightEnd-rightStart);
-            if (leftExtraLineCount > 0) { rightLineNumbers.subList(rightEnd, rightEnd).addAll(Collections.nCopies(leftExtraLineCount, "")); }
-            int rightExtraLineCount = (rightEnd-rightStart) - (leftEnd-leftStart);
-            if (rightExtraLineCount > 0) { leftLineNumbers.subList(leftEnd, leftEnd).addAll(Collections.nCopies(rightExtraLineCount, "")); }
-        }
-        if (leftLineNumbers.size() != rightLineNumbers.size()) { throw new RuntimeException("Assertion failed: " + leftLineNumbers.size() + " != " + rightLineNumbers.size()); }
-        List leftFormattedText = new ArrayList();
-        List rightFormattedText = new ArrayList();
-        List leftHtml = new ArrayList();
-        List rightHtml = new ArrayList();
-        List leftLines = new ArrayList();
-        List rightLines = new ArrayList();
-        int lineNumberWidth = String.valueOf(leftLineNumbers.size()).length() + 1;
-        for (int i = 0; i < leftLineNumbers.size(); i++) {
-            String leftLineNumber = leftLineNumbers.get(i).toString();
-            String rightLineNumber = rightLineNumbers.get(i).toString();
-            leftLines.add(leftLineNumber.length() == 0 ? "" : leftFileLines[Integer.parseInt(leftLineNumber)-1]);
-            rightLines.add(rightLineNumber.length() == 0 ? "" : rightFileLines[Integer.parseInt(rightLineNumber)-1]);
+        LineDictionary dictionary = new LineDictionary();
+        return diff(dictionary.intern(leftFileContents), dictionary.intern(rightFileContents), dictionary, showDifferencesOnly);
+    }
+
+    /**
+     * Returns a diff of two text files whose lines have been replaced by ids, so that
+     * lines are compared as ints rather than as Strings.
+     *
+     * @param leftLineIds  the ids of the lines of the first file
+     * @param rightLineIds  the ids of the lines of the second file
+     * @param dictionary  the dictionary that assigned the ids
+     * @param showDifferencesOnly  whether to hide identical lines
+     * @return  the lines that differ
+     */
+    public static Diff diff(int[] leftLineIds, int[] rightLineIds, LineDictionary dictionary, boolean showDifferencesOnly) {
+        return diff(leftLineIds, rightLineIds, dictionary, DiffAlgorithms.DEFAULT, showDifferencesOnly);
+    }
+
+    /**
+     * Returns a diff of two text files whose lines have been replaced by ids, using
+     * the given algorithm to find the lines that differ.
+     *
+     * @param leftLineIds  the ids of the lines of the first file
+     * @param rightLineIds  the ids of the lines of the second file
+     * @param dictionary  the dictionary that assigned the ids
+     * @param algorithm  the diff algorithm
+     * @param showDifferencesOnly  whether to hide identical lines
+     * @return  the lines that differ
+     */
+    public static Diff diff(int[] leftLineIds, int[] rightLineIds, LineDictionary dictionary, DiffAlgorithm algorithm, boolean showDifferencesOnly) {
+        Diff diff = diff(leftLineIds, rightLineIds, dictionary, algorithm);
+        return showDifferencesOnly ? diff.differencesOnly(DEFAULT_CONTEXT) : diff;
+    }
+
+    /**
+     * Returns a diff of all the lines of two text files whose lines have been replaced
+     * by ids. The view showing differences only can be derived from it with
+     * Diff.differencesOnly.
+     *
+     * @param leftLineIds  the ids of the lines of the first file
+     * @param rightLineIds  the ids of the lines of the second file
+     * @param dictionary  the dictionary that assigned the ids
+     * @param algorithm  the diff algorithm
+     * @return  the lines of the two files, side by side
+     */
+    public static Diff diff(int[] leftLineIds, int[] rightLineIds, LineDictionary dictionary, DiffAlgorithm algorithm) {
+        return diff(leftLineIds, rightLineIds, dictionary, algorithm, new InlineDiff());
+    }
+
+    /**
+     * Returns a diff of all the lines of two text files whose lines have been replaced
+     * by ids, finding the words that changed in modified lines with an InlineDiff that
+     * may be shared with other diffs using the same dictionary.
+     *
+     * @param leftLineIds  the ids of the lines of the first file
+     * @param rightLineIds  the ids of the lines of the second file
+     * @param dictionary  the dictionary that assigned the ids
+     * @param algorithm  the diff algorithm
+     * @param inlineDiff  finds the words that changed in modified lines, keyed by the
+     *          dictionary's ids; or null to highlight modified lines as a whole
+     * @return  the lines of the two files, side by side
+     */
+    public static Diff diff(int[] leftLineIds, int[] rightLineIds, LineDictionary dictionary, DiffAlgorithm algorithm, InlineDiff inlineDiff) {
+        List hunks = algorithm.diff(leftLineIds, rightLineIds);
+        Alignment alignment = Alignment.create(hunks, leftLineIds.length);
+        int lineNumberWidth = String.valueOf(alignment.size()).length() + 1;
+        return diff(alignment, dictionary.getLines(leftLineIds), dictionary.getLines(rightLineIds), leftLineIds, rightLineIds, lineNumberWidth, hunks, inlineDiff);
+    }
+
+    /**
+     * Returns a diff showing the given rows of two text files.
+     *
+     * @param alignment  the rows of the diff
+     * @param leftFileLines  the lines of the first file
+     * @param rightFileLines  the lines of the second file
+     * @param lineNumberWidth  the number of characters to pad the line numbers up to
+     * @param hunks  the Hunks in which the files differ
+     * @return  the lines of the two files, side by side
+     */
+    public static Diff diff(Alignment alignment, String[] leftFileLines, String[] rightFileLines, int lineNumberWidth, List hunks) {
+        LineDictionary dictionary = new LineDictionary();
+        return diff(alignment, leftFileLines, rightFileLines, dictionary.intern(leftFileLines), dictionary.intern(rightFileLines), lineNumberWidth, hunks, new InlineDiff());
+    }
+
+    /**
+     * Returns a diff showing the given rows of two text files whose lines have been
+     * assigned ids.
+     *
+     * @param alignment  the rows of the diff
+     * @param leftFileLines  the lines of the first file
+     * @param rightFileLines  the lines of the second file
+     * @param leftLineIds  the ids of the lines of the first file
+     * @param rightLineIds  the ids of the lines of the second file
+     * @param lineNumberWidth  the number of characters to pad the line numbers up to
+     * @param hunks  the Hunks in which the files differ
+     * @param inlineDiff  finds the words that changed in modified lines, or null to
+     *          highlight modified lines as a whole
+     * @return  the lines of the two files, side by side
+     */
+    public static Diff diff(Alignment alignment, String[] leftFileLines, String[] rightFileLines, int[] leftLineIds, int[] rightLineIds, int lineNumberWidth, List hunks, InlineDiff inlineDiff) {
+        boolean[] differenceFlags = differenceFlags(alignment, leftLineIds, rightLineIds);
+        return new Diff(alignment, leftFileLines, rightFileLines, leftLineIds, rightLineIds, lineNumberWidth, hunks, differenceFlags, differencePositions(differenceFlags), inlineDiff);
+    }
+
+    /**
+     * Returns the text for the two sides of a diff.
+     *
+     * @param alignment  the rows of the diff
+     * @param leftFileLines  the lines of the first file
+     * @param rightFileLines  the lines of the second file
+     * @param lineNumberWidth  the number of characters to pad the line numbers up to
+     * @return  the left and right text
+     */
+    public static String[] renderText(Alignment alignment, String[] leftFileLines, String[] rightFileLines, int lineNumberWidth) {
+        StringBuffer leftFormattedText = new StringBuffer();
+        StringBuffer rightFormattedText = new StringBuffer();
+        for (int i = 0; i < alignment.size(); i++) {
+            String[] row = row(alignment, i, leftFileLines, rightFileLines);
+            String[] textPair = text(row[0], row[1], row[2], row[3], lineNumberWidth);
+            if (i > 0) {
+                leftFormattedText.append('\n');
+                rightFormattedText.append('\n');
+            }
+            leftFormattedText.append(textPair[0]);
+            rightFormattedText.append(textPair[1]);
         }
-        boolean[] differenceFlags = differenceFlags(leftLines, rightLines, leftLineNumbers, rightLineNumbers);
-        if (showDifferencesOnly) {
-            keepDifferencesOnly(3, differenceFlags, leftLines, rightLines, leftLineNumbers, rightLineNumbers);
-            differenceFlags = differenceFlags(leftLines, rightLines, leftLineNumbers, rightLineNumbers);
+        return new String[] { leftFormattedText.toString(), rightFormattedText.toString() };
+    }
+
+    /**
+     * Returns the HTML for the two sides of a diff.
+     *
+     * @param alignment  the rows of the diff
+     * @param leftFileLines  the lines of the first file
+     * @param rightFileLines  the lines of the second file
+     * @param leftLineIds  the ids of the lines of the first file
+     * @param rightLineIds  the ids of the lines of the second file
+     * @param lineNumberWidth  the number of characters to pad the line numbers up to
+     * @param inlineDiff  finds the words that changed in modified lines, or null to
+     *          highlight modified lines as a whole
+     * @return  the left and right HTML
+     */
+    public static String[] renderHtml(Alignment alignment, String[] leftFileLines, String[] rightFileLines, int[] leftLineIds, int[] rightLineIds, int lineNumberWidth, InlineDiff inlineDiff) {
+        StringBuffer leftHtml = new StringBuffer("<pre>");
+        StringBuffer rightHtml = new StringBuffer("<pre>");
+        for (int i = 0; i < alignment.size(); i++) {
+            String[] row = row(alignment, i, leftFileLines, rightFileLines);
+            int[][] changes = null;
+            int leftIndex = alignment.getLeftLine(i);
+            int rightIndex = alignment.getRightLine(i);
+            if (inlineDiff != null && leftIndex != -1 && rightIndex != -1 && leftLineIds[leftIndex] != rightLineIds[rightIndex]) {
+                changes = inlineDiff.ranges(leftLineIds[leftIndex], rightLineIds[rightIndex], row[2], row[3]);
+            }
+            String[] htmlPair = html(row[0], row[1], row[2], row[3], i, lineNumberWidth, changes);
+            if (i > 0) {
+                leftHtml.append('\n');
+                rightHtml.append('\n');
+            }
+            leftHtml.append(htmlPair[0]);
+            rightHtml.append(htmlPair[1]);
         }
-        for (int i = 0; i < leftLineNumbers.size(); i++) {
-            String leftLineNumber = leftLineNumbers.get(i).toString();
-            String rightLineNumber = rightLineNumbers.get(i).toString();
-            String leftLine = leftLines.get(i).toString();
-            String rightLine = rightLines.get(i).toString();
-            String[] textPair = text(leftLineNumber, rightLineNumber, leftLine, rightLine, lineNumberWidth);
-            String[] htmlPair = html(leftLineNumber, rightLineNumber, leftLine, rightLine, i, lineNumberWidth);
-            leftFormattedText.add(textPair[0]);
-            rightFormattedText.add(textPair[1]);
-            leftHtml.add(htmlPair[0]);
-            rightHtml.add(htmlPair[1]);
-        }        
-        return new Diff(rightLineNumbers.size(), "<pre>" + StringUtils.join(leftHtml, "\n") + "</pre>", "<pre>" + StringUtils.join(rightHtml, "\n") + "</pre>", StringUtils.join(leftFormattedText, "\n"), StringUtils.join(rightFormattedText, "\n"), differencePositions(differenceFlags));
-    }
-
-    /**
-     * Removes elements from the arrays other than differences and a few lines of context
+        leftHtml.append("</pre>");
+        rightHtml.append("</pre>");
+        return new String[] { leftHtml.toString(), rightHtml.toString() };
+    }
+
+    /**
+     * Returns the line numbers and lines of a row.
+     *
+     * @param alignment  the rows of the diff
+     * @param position  the zero-based row
+     * @param leftFileLines  the lines of the first file
+     * @param rightFileLines  the lines of the second file
+     * @return  the left and right line numbers, or empty strings where lines are missing,
+     *          followed by the left and right lines
+     */
+    private static String[] row(Alignment alignment, int position, String[] leftFileLines, String[] rightFileLines) {
+        int leftIndex = alignment.getLeftLine(position);
+        int rightIndex = alignment.getRightLine(position);
+        return new String[] {
+                leftIndex == -1 ? "" : String.valueOf(leftIndex + 1),
+                rightIndex == -1 ? "" : String.valueOf(rightIndex + 1),
+                leftIndex == -1 ? "" : leftFileLines[leftIndex],
+                rightIndex == -1 ? "" : rightFileLines[rightIndex] };
+    }
+
+    /**
+     * Returns a one-line diff of two files that are not compared line by line, such as
+     * binary files, which shows a description of each file instead of its lines.
+     *
+     * @param leftDescription  a description of the first file, e.g., its size and hash
+     * @param rightDescription  a description of the second file
+     * @return  a diff with a single line, which differs if the descriptions differ
+     */
+    public static Diff summaryDiff(String leftDescription, String rightDescription) {
+        String[] textPair = text("", "", leftDescription, rightDescription, 1);
+        String[] htmlPair = html("1", "1", leftDescription, rightDescription, 0, 1);
+        List differencePositions = new ArrayList();
+        if (! leftDescription.equals(rightDescription)) { differencePositions.add(new Integer(0)); }
+        return new Diff(1, "<pre>" + htmlPair[0] + "</pre>", "<pre>" + htmlPair[1] + "</pre>", textPair[0], textPair[1], differencePositions);
+    }
+
+    /**
+     * Returns the rows that are differences or within a few rows of one, with three
+     * blank rows in place of each run of rows left out. Takes time proportional to the
+     * number of rows, so the view can be derived again whenever the context changes.
      * 
      * @param context  number of lines to show before and after the difference
-     * @param differenceFlags  an array of flags indicating whether the corresponding lines are different
-     * @param leftLines  text for the left side of the diff
-     * @param rightLines  text for the right side of the diff
-     * @param leftLineNumbers  line number strings, or empty strings where lines are missing
-     * @param rightLineNumbers  line number strings, or empty strings where lines are missing
+     * @param differenceFlags  an array of flags indicating whether the corresponding rows are different
+     * @param alignment  the rows of the full diff
+     * @return  the rows to show
      */
-    protected static void keepDifferencesOnly(int context, boolean[] differenceFlags, List leftLines, List rightLines, List leftLineNumbers, List rightLineNumbers) {
+    public static Alignment keepDifferencesOnly(int context, boolean[] differenceFlags, Alignment alignment) {
         boolean[] differenceFlagsWithContext = new boolean[differenceFlags.length]; 
+        int size = 0;
         for (int i = 0; i < differenceFlags.length; i++) {
             if (! differenceFlags[i]) { continue; }
             differenceFlagsWithContext[i] = true;
@@ -96,33 +259,25 @@ public class DiffHelper {
                 if (i + j < differenceFlags.length) { differenceFlagsWithContext[i+j] = true; }
             }
         }
-        List newLeftLines = new ArrayList();
-        List newRightLines = new ArrayList();
-        List newLeftLineNumbers = new ArrayList();
-        List newRightLineNumbers = new ArrayList();
+        for (int i = 0; i < differenceFlagsWithContext.length; i++) {
+            if (differenceFlagsWithContext[i]) { size++; }
+            else if (i > 0 && differenceFlagsWithContext[i-1]) { size += SEPARATOR_ROW_COUNT; }
+        }
+        int[] leftLines = new int[size];
+        int[] rightLines = new int[size];
+        int row = 0;
         for (int i = 0; i < differenceFlagsWithContext.length; i++) {
             if (differenceFlagsWithContext[i]) {
-                newLeftLines.add(leftLines.get(i));
-                newRightLines.add(rightLines.get(i));
-                newLeftLineNumbers.add(leftLineNumbers.get(i));
-                newRightLineNumbers.add(rightLineNumbers.get(i));
+                leftLines[row] = alignment.getLeftLine(i);
+                rightLines[row++] = alignment.getRightLine(i);
             } else if (i > 0 && differenceFlagsWithContext[i-1]) {
-                for (int j = 0; j < 3; j++) {
-                    newLeftLines.add("");
-                    newRightLines.add("");
-                    newLeftLineNumbers.add("");
-                    newRightLineNumbers.add("");
+                for (int j = 0; j < SEPARATOR_ROW_COUNT; j++) {
+                    leftLines[row] = -1;
+                    rightLines[row++] = -1;
                 }
             }
         }
-        leftLines.clear();
-        leftLines.addAll(newLeftLines);
-        rightLines.clear();
-        rightLines.addAll(newRightLines);
-        leftLineNumbers.clear();
-        leftLineNumbers.addAll(newLeftLineNumbers);
-        rightLineNumbers.clear();
-        rightLineNumbers.addAll(newRightLineNumbers);
+        return new Alignment(leftLines, rightLines, size);
     }
 
     /**
@@ -141,18 +296,20 @@ public class DiffHelper {
     }
 
     /**
-     * Returns an array of flags indicating whether the corresponding lines are different.
+     * Returns an array of flags indicating whether the corresponding rows are different.
+     * Lines are compared by id, as equal lines have the same id.
      *
-     * @param leftLines  text for the left side of the diff
-     * @param rightLines  text for the right side of the diff
-     * @param leftLineNumbers  line number strings, or empty strings where lines are missing
-     * @param rightLineNumbers  line number strings, or empty strings where lines are missing
+     * @param alignment  the rows of the diff
+     * @param leftLineIds  the ids of the lines of the first file
+     * @param rightLineIds  the ids of the lines of the second file
      * @return  whether pairs of lines are different
      */
-    private static boolean[] differenceFlags(List leftLines, List rightLines, List leftLineNumbers, List rightLineNumbers) {
-        boolean[] differenceFlags = new boolean[leftLines.size()];
-        for (int i = 0; i < leftLines.size(); i++) {
-            differenceFlags[i] = !leftLines.get(i).equals(rightLines.get(i)) || (leftLineNumbers.get(i).toString().length() > 0 != rightLineNumbers.get(i).toString().length() > 0); 
+    private static boolean[] differenceFlags(Alignment alignment, int[] leftLineIds, int[] rightLineIds) {
+        boolean[] differenceFlags = new boolean[alignment.size()];
+        for (int i = 0; i < alignment.size(); i++) {
+            int leftIndex = alignment.getLeftLine(i);
+            int rightIndex = alignment.getRightLine(i);
+            differenceFlags[i] = leftIndex == -1 || rightIndex == -1 ? leftIndex != rightIndex : leftLineIds[leftIndex] != rightLineIds[rightIndex];
         }
         return differenceFlags;
     }    
@@ -185,6 +342,23 @@ public class DiffHelper {
      * @return  two HTML strings
      */
     private static String[] html(String leftLineNumber, String rightLineNumber, String leftLine, String rightLine, int position, int lineNumberWidth) {
+        return html(leftLineNumber, rightLineNumber, leftLine, rightLine, position, lineNumberWidth, null);
+    }
+
+    /**
+     * Returns HTML for the two lines, with the words and characters that changed
+     * highlighted within them
+     *
+     * @param leftLineNumber  line number for the left line, or an empty string if it does not exist
+     * @param rightLineNumber line number for the right line, or an empty string if it does not exist
+     * @param leftLine  the left line
+     * @param rightLine  the right line
+     * @param position  the zero-based vertical position of the two lines
+     * @param lineNumberWidth  the number of characters to pad the line numbers up to
+     * @param changes  the changed ranges of the two lines, as returned by InlineDiff, or null
+     * @return  two HTML strings
+     */
+    private static String[] html(String leftLineNumber, String rightLineNumber, String leftLine, String rightLine, int position, int lineNumberWidth, int[][] changes) {
         String leftOpeningTag = "", leftClosingTag = "", rightOpeningTag = "", rightClosingTag = "";
         if (leftLineNumber.length() == 0 && rightLineNumber.length() == 0) {
             
@@ -200,22 +374,29 @@ public class DiffHelper {
         }
         // Make sure the anchor tag is not empty; otherwise the Highlight offsets seem to get messed up [Jon Aquino 2007-10-16]
         return new String[] { 
-                leftOpeningTag + "<a name='Position" + position + "'>" + StringUtils.rightPad(leftLineNumber, lineNumberWidth) + "</a>" + StringEscapeUtils.escapeHtml(leftLine) + leftClosingTag, 
-                rightOpeningTag + "<a name='Position" + position + "'>" + StringUtils.rightPad(rightLineNumber, lineNumberWidth) + "</a>" + StringEscapeUtils.escapeHtml(rightLine) + rightClosingTag };
+                leftOpeningTag + "<a name='Position" + position + "'>" + StringUtils.rightPad(leftLineNumber, lineNumberWidth) + "</a>" + highlight(leftLine, changes == null ? null : changes[0]) + leftClosingTag, 
+                rightOpeningTag + "<a name='Position" + position + "'>" + StringUtils.rightPad(rightLineNumber, lineNumberWidth) + "</a>" + highlight(rightLine, changes == null ? null : changes[1]) + rightClosingTag };
     }
 
     /**
-     * Line numbers for the file
+     * Returns HTML for the line, with the given ranges highlighted
      *
-     * @param lines  the lines of the text file
-     * @return  an array of line-number strings
+     * @param line  the line
+     * @param ranges  start and end offsets of the changed parts of the line, or null
+     * @return  the escaped line
      */
-    private static List lineNumbers(String[] lines) {
-        List lineNumbers = new ArrayList();
-        for (int i = 1; i <= lines.length; i++) {
-            lineNumbers.add(String.valueOf(i));
+    private static String highlight(String line, int[] ranges) {
+        if (ranges == null) { return StringEscapeUtils.escapeHtml(line); }
+        StringBuffer html = new StringBuffer();
+        int end = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (ranges[i] == ranges[i+1]) { continue; }
+            html.append(StringEscapeUtils.escapeHtml(line.substring(end, ranges[i])));
+            html.append(CHANGE_OPENING_TAG).append(StringEscapeUtils.escapeHtml(line.substring(ranges[i], ranges[i+1]))).append("</span>");
+            end = ranges[i+1];
         }
-        return lineNumbers;
+        html.append(StringEscapeUtils.escapeHtml(line.substring(end)));
+        return html.toString();
     }
 
     /**
@@ -225,7 +406,7 @@ public class DiffHelper {
      * @return  the lines of the text file
      */
     protected static String[] split(String fileContents) {
-        return fileContents.split("\r\n|\r|\n");
+        return LineDictionary.split(fileContents);
     }
 
 }
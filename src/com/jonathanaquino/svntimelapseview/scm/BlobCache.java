@@ -0,0 +1,165 @@
+package com.jonathanaquino.svntimelapseview.scm;
+
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+/**
+ * Contents of Git blobs, keyed by blob id. The most recently used blobs are held
+ * strongly, up to a total number of bytes; blobs pushed out of that set are kept
+ * through soft references until the garbage collector needs the memory.
+ */
+public class BlobCache {
+
+	/** Maximum total size of the strongly held blobs, in bytes */
+	private final long capacity;
+
+	/** Total size of the strongly held blobs, in bytes */
+	private long size = 0;
+
+	/** The strongly held blobs, least recently used first */
+	private final LinkedHashMap<ObjectId, byte[]> entries = new LinkedHashMap<ObjectId, byte[]>(16, 0.75f, true);
+
+	/** Blobs evicted from the strongly held set, which the collector may reclaim */
+	private final Map<ObjectId, SoftEntry> softEntries = new HashMap<ObjectId, SoftEntry>();
+
+	/** Receives the soft references that the collector has cleared */
+	private final ReferenceQueue<byte[]> clearedEntries = new ReferenceQueue<byte[]>();
+
+	/** Number of lookups answered from the cache */
+	private long hitCount = 0;
+
+	/** Number of lookups that had to read the repository */
+	private long missCount = 0;
+
+	/**
+	 * Creates a new BlobCache.
+	 *
+	 * @param capacity  maximum total size of the strongly held blobs, in bytes
+	 */
+	public BlobCache(long capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Returns the contents of the blob, reading it from the repository if it is not cached.
+	 *
+	 * @param repository  the repository containing the blob
+	 * @param id  the blob id
+	 * @return  the bytes of the blob
+	 */
+	public byte[] load(Repository repository, AnyObjectId id) throws IOException {
+		byte[] contents = get(id);
+		if (contents == null) {
+			contents = repository.open(id).getCachedBytes();
+			put(id, contents);
+		}
+		return contents;
+	}
+
+	/**
+	 * Returns the cached contents of the blob.
+	 *
+	 * @param id  the blob id
+	 * @return  the bytes of the blob, or null if they are not cached
+	 */
+	public synchronized byte[] get(AnyObjectId id) {
+		expungeClearedEntries();
+		byte[] contents = entries.get(id);
+		if (contents == null) {
+			SoftEntry softEntry = softEntries.remove(id);
+			contents = softEntry == null ? null : softEntry.get();
+			if (contents != null) { put(id, contents); }
+		}
+		if (contents == null) {
+			missCount++;
+		} else {
+			hitCount++;
+		}
+		return contents;
+	}
+
+	/**
+	 * Adds the blob to the cache, evicting the least recently used blobs if the
+	 * capacity is exceeded.
+	 *
+	 * @param id  the blob id
+	 * @param contents  the bytes of the blob
+	 */
+	public synchronized void put(AnyObjectId id, byte[] contents) {
+		expungeClearedEntries();
+		ObjectId key = id.copy();
+		if (contents.length > capacity) {
+			softEntries.put(key, new SoftEntry(key, contents, clearedEntries));
+			return;
+		}
+		byte[] previous = entries.put(key, contents);
+		if (previous != null) { size -= previous.length; }
+		size += contents.length;
+		for (Iterator<Map.Entry<ObjectId, byte[]>> i = entries.entrySet().iterator(); size > capacity && i.hasNext(); ) {
+			Map.Entry<ObjectId, byte[]> eldest = i.next();
+			i.remove();
+			size -= eldest.getValue().length;
+			softEntries.put(eldest.getKey(), new SoftEntry(eldest.getKey(), eldest.getValue(), clearedEntries));
+		}
+	}
+
+	/**
+	 * Forgets soft entries whose contents the garbage collector has reclaimed.
+	 */
+	private void expungeClearedEntries() {
+		for (SoftEntry softEntry = (SoftEntry) clearedEntries.poll(); softEntry != null; softEntry = (SoftEntry) clearedEntries.poll()) {
+			if (softEntries.get(softEntry.id) == softEntry) { softEntries.remove(softEntry.id); }
+		}
+	}
+
+	/**
+	 * Returns the total size of the strongly held blobs.
+	 *
+	 * @return  the number of bytes held
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of lookups answered from the cache.
+	 *
+	 * @return  the number of cache hits
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Returns the number of lookups that were not answered from the cache.
+	 *
+	 * @return  the number of cache misses
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * A soft reference to blob contents that remembers its key, so that it can be
+	 * removed from the map once the collector clears it.
+	 */
+	private static class SoftEntry extends SoftReference<byte[]> {
+
+		/** The blob id */
+		private final ObjectId id;
+
+		public SoftEntry(ObjectId id, byte[] contents, ReferenceQueue<byte[]> queue) {
+			super(contents, queue);
+			this.id = id;
+		}
+	}
+}
@@ -0,0 +1,311 @@
+package com.jonathanaquino.svntimelapseview.scm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * For each commit of a Git repository, a Bloom filter of the paths that the commit
+ * changed relative to its first parent, in the spirit of the changed-path filters of
+ * Git's commit-graph. A file-history walk can then tell, without reading any trees,
+ * that a commit certainly did not touch the file. The index is kept in a file; it is
+ * built the first time it is used and extended with the new commits after that.
+ */
+public class ChangedPathIndex {
+
+	/** Identifies the file format */
+	private static final int MAGIC = 0x53544c31;
+
+	/** Commits that change more paths than this get no filter, and may have changed any path */
+	private static final int MAX_CHANGED_PATHS = 512;
+
+	/** Size of a filter per path added, which gives about one false positive in a hundred */
+	private static final int BITS_PER_PATH = 10;
+
+	/** Number of bits set per path */
+	private static final int HASH_COUNT = 7;
+
+	/** Maximum number of tips to remember */
+	private static final int MAX_TIPS = 16;
+
+	/** The file holding the index */
+	private final File file;
+
+	/** The filters, keyed by commit id; an empty filter matches every path */
+	private final Map<ObjectId, long[]> filters = new HashMap<ObjectId, long[]>();
+
+	/** Commits whose ancestors all have filters, most recent last */
+	private final LinkedHashSet<ObjectId> tips = new LinkedHashSet<ObjectId>();
+
+	/** Whether the index has changed since it was read */
+	private boolean modified = false;
+
+	/**
+	 * Creates a new ChangedPathIndex, reading the file if it exists.
+	 *
+	 * @param file  the file holding the index
+	 */
+	public ChangedPathIndex(File file) throws IOException {
+		this.file = file;
+		if (file.exists()) { read(); }
+	}
+
+	/**
+	 * Adds filters for the commits reachable from the given commit that the index
+	 * does not cover yet. If the monitor reports cancellation, the filters built so
+	 * far are kept and the rest are built next time.
+	 *
+	 * @param repository  the Git repository
+	 * @param head  the commit whose history the index should cover
+	 * @param monitor  reports whether to stop early
+	 */
+	public void update(Repository repository, AnyObjectId head, ProgressMonitor monitor) throws IOException {
+		if (tips.contains(head)) { return; }
+		RevWalk walker = new RevWalk(repository);
+		TreeWalk treeWalk = new TreeWalk(repository);
+		treeWalk.setRecursive(true);
+		treeWalk.setFilter(TreeFilter.ANY_DIFF);
+		try {
+			walker.markStart(walker.parseCommit(head));
+			for (Iterator<ObjectId> i = tips.iterator(); i.hasNext(); ) {
+				try {
+					walker.markUninteresting(walker.parseCommit(i.next()));
+				} catch (IOException e) {
+					// The tip is gone, e.g., after a rebase and garbage collection
+					i.remove();
+				}
+			}
+			for (RevCommit commit = walker.next(); commit != null; commit = walker.next()) {
+				if (monitor.isCancelled()) { return; }
+				if (filters.containsKey(commit)) { continue; }
+				filters.put(commit.copy(), createFilter(changedPaths(walker, treeWalk, commit)));
+				modified = true;
+			}
+			tips.remove(head);
+			tips.add(head.copy());
+			if (tips.size() > MAX_TIPS) { tips.remove(tips.iterator().next()); }
+			modified = true;
+		} finally {
+			treeWalk.release();
+			walker.release();
+		}
+	}
+
+	/**
+	 * Returns whether the commit may have changed the path. A false result is certain;
+	 * a true result may be a false positive.
+	 *
+	 * @param commit  the commit
+	 * @param path  a file or directory path within the repository
+	 * @return  false if the commit certainly left the path as it was in its first parent
+	 */
+	public boolean mayHaveChanged(AnyObjectId commit, String path) {
+		long[] filter = filters.get(commit);
+		if (filter == null || filter.length == 0) { return true; }
+		int bitCount = filter.length * 64;
+		int[] hashes = hashes(path);
+		for (int i = 0; i < HASH_COUNT; i++) {
+			int bit = (int) (((hashes[0] + (long) i * hashes[1]) & 0xFFFFFFFFL) % bitCount);
+			if ((filter[bit >>> 6] & (1L << bit)) == 0) { return false; }
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether the index has a filter for the commit.
+	 *
+	 * @param commit  the commit
+	 * @return  whether mayHaveChanged can rule out paths for the commit
+	 */
+	public boolean contains(AnyObjectId commit) {
+		return filters.containsKey(commit);
+	}
+
+	/**
+	 * Writes the index to its file, if it has changed.
+	 */
+	public void save() throws IOException {
+		if (!modified) { return; }
+		file.getParentFile().mkdirs();
+		File temporaryFile = File.createTempFile("tmp", null, file.getParentFile());
+		DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+		try {
+			byte[] id = new byte[Constants.OBJECT_ID_LENGTH];
+			outputStream.writeInt(MAGIC);
+			outputStream.writeInt(tips.size());
+			for (ObjectId tip : tips) {
+				tip.copyRawTo(id, 0);
+				outputStream.write(id);
+			}
+			outputStream.writeInt(filters.size());
+			for (Map.Entry<ObjectId, long[]> entry : filters.entrySet()) {
+				entry.getKey().copyRawTo(id, 0);
+				outputStream.write(id);
+				outputStream.writeInt(entry.getValue().length);
+				for (long word : entry.getValue()) { outputStream.writeLong(word); }
+			}
+		} finally {
+			outputStream.close();
+		}
+		file.delete();
+		if (!temporaryFile.renameTo(file)) {
+			temporaryFile.delete();
+			throw new IOException("Could not write " + file);
+		}
+		modified = false;
+	}
+
+	/**
+	 * Reads the index from its file. A file in an unknown format is ignored, and the
+	 * index is rebuilt.
+	 */
+	private void read() throws IOException {
+		DataInputStream inputStream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (inputStream.readInt() != MAGIC) { return; }
+			byte[] id = new byte[Constants.OBJECT_ID_LENGTH];
+			for (int n = inputStream.readInt(); n > 0; n--) {
+				inputStream.readFully(id);
+				tips.add(ObjectId.fromRaw(id));
+			}
+			for (int n = inputStream.readInt(); n > 0; n--) {
+				inputStream.readFully(id);
+				long[] filter = new long[inputStream.readInt()];
+				for (int i = 0; i < filter.length; i++) { filter[i] = inputStream.readLong(); }
+				filters.put(ObjectId.fromRaw(id), filter);
+			}
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Returns the paths that the commit changed relative to its first parent, with
+	 * the directories containing them.
+	 *
+	 * @param walker  the RevWalk that produced the commit
+	 * @param treeWalk  a recursive TreeWalk with the ANY_DIFF filter, to reuse
+	 * @param commit  the commit
+	 * @return  the changed paths, or null if there are more than MAX_CHANGED_PATHS
+	 */
+	private Set<String> changedPaths(RevWalk walker, TreeWalk treeWalk, RevCommit commit) throws IOException {
+		treeWalk.reset();
+		if (commit.getParentCount() > 0) {
+			treeWalk.addTree(walker.parseCommit(commit.getParent(0)).getTree());
+		} else {
+			treeWalk.addTree(new EmptyTreeIterator());
+		}
+		treeWalk.addTree(commit.getTree());
+		Set<String> paths = new HashSet<String>();
+		while (treeWalk.next()) {
+			String path = treeWalk.getPathString();
+			for (int slash = path.indexOf('/'); slash > -1; slash = path.indexOf('/', slash + 1)) {
+				paths.add(path.substring(0, slash));
+			}
+			paths.add(path);
+			if (paths.size() > MAX_CHANGED_PATHS) { return null; }
+		}
+		return paths;
+	}
+
+	/**
+	 * Builds the Bloom filter for the given paths.
+	 *
+	 * @param paths  the changed paths, or null if there are too many to record
+	 * @return  the bits of the filter; empty if every path should match
+	 */
+	private static long[] createFilter(Set<String> paths) {
+		if (paths == null) { return new long[0]; }
+		long[] filter = new long[Math.max(1, (paths.size() * BITS_PER_PATH + 63) / 64)];
+		int bitCount = filter.length * 64;
+		for (String path : paths) {
+			int[] hashes = hashes(path);
+			for (int i = 0; i < HASH_COUNT; i++) {
+				int bit = (int) (((hashes[0] + (long) i * hashes[1]) & 0xFFFFFFFFL) % bitCount);
+				filter[bit >>> 6] |= 1L << bit;
+			}
+		}
+		return filter;
+	}
+
+	/**
+	 * Returns the two hashes from which the bit positions of the path are derived.
+	 *
+	 * @param path  a file or directory path
+	 * @return  two 32-bit MurmurHash3 values of the path's UTF-8 bytes, with different seeds
+	 */
+	private static int[] hashes(String path) {
+		byte[] bytes;
+		try {
+			bytes = path.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+		return new int[] { murmur3(0x293ae76f, bytes), murmur3(0x7e646e2c, bytes) };
+	}
+
+	/**
+	 * Computes the 32-bit MurmurHash3 of the bytes.
+	 *
+	 * @param seed  the seed
+	 * @param data  the bytes to hash
+	 * @return  the hash
+	 */
+	static int murmur3(int seed, byte[] data) {
+		int c1 = 0xcc9e2d51, c2 = 0x1b873593;
+		int hash = seed;
+		int blockEnd = data.length & ~3;
+		for (int i = 0; i < blockEnd; i += 4) {
+			int k = (data[i] & 0xFF) | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF) << 16 | (data[i + 3] & 0xFF) << 24;
+			k *= c1;
+			k = Integer.rotateLeft(k, 15);
+			k *= c2;
+			hash ^= k;
+			hash = Integer.rotateLeft(hash, 13);
+			hash = hash * 5 + 0xe6546b64;
+		}
+		int k = 0;
+		switch (data.length & 3) {
+		case 3:
+			k ^= (data[blockEnd + 2] & 0xFF) << 16;
+		case 2:
+			k ^= (data[blockEnd + 1] & 0xFF) << 8;
+		case 1:
+			k ^= data[blockEnd] & 0xFF;
+			k *= c1;
+			k = Integer.rotateLeft(k, 15);
+			k *= c2;
+			hash ^= k;
+		}
+		hash ^= data.length;
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+}
@@ -1,29 +1,37 @@
 package com.jonathanaquino.svntimelapseview.scm;
 
 import java.io.File;
+import java.io.IOException;
 import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffEntry.ChangeType;
+import org.eclipse.jgit.diff.RenameDetector;
 import org.eclipse.jgit.lib.AnyObjectId;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
-import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ProgressMonitor;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.revwalk.FollowFilter;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevCommitList;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.AndRevFilter;
+import org.eclipse.jgit.revwalk.filter.AuthorRevFilter;
+import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
-import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.TreeWalk;
-import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
 import org.eclipse.jgit.treewalk.filter.TreeFilter;
 
 import com.jonathanaquino.svntimelapseview.Revision;
+import com.jonathanaquino.svntimelapseview.storage.RevisionStore;
+import com.jonathanaquino.svntimelapseview.storage.RevisionStore.History;
 
 /**
  * Loads revisions from a subversion repository.
@@ -41,71 +49,82 @@ public class GitLoader extends ScmLoader {
 	private List<GitRevision> revisions;
 
 	private static DateFormat dateFormat = DateFormat.getDateInstance();
+
+	/** Blob contents shared by all Git revisions, so that moving the slider back and forth does not re-read the pack files. */
+	private static BlobCache blobCache = new BlobCache(64 * 1024 * 1024);
 	
 	private RevWalk walker;
 
+	/** The directory holding the changed-path indexes, or null to walk without them */
+	private volatile File pathIndexDirectory;
+
+	/** The changed-path index of the repository loaded last, or null */
+	private ChangedPathIndex pathIndex;
+
+	/** The file holding pathIndex */
+	private File pathIndexFile;
+
 	static class GitRevision extends Revision {
 		Repository repository;
-		RevCommit commit;
 		AnyObjectId contentsId;
 
 		public GitRevision(Repository repository, RevCommit commit, AnyObjectId contents) {
+			this(repository, commit.getId().name(), commit.getCommitterIdent().toExternalString(), formatDate(commit), commit.getFullMessage(), contents);
+		}
+
+		public GitRevision(Repository repository, String commitId, String author, String date, String logMessage, AnyObjectId contents) {
+			super(commitId, author, date, logMessage, null);
 			this.repository = repository;
-			this.commit = commit;
 			this.contentsId = contents;
+			setContentHash(contents.name());
 		}
 
 		/**
-		 * Returns the number identifying this revision.
-		 * 
-		 * @return the value from Subversion
+		 * Returns the bytes of the file that was submitted.
 		 */
-		public Object getRevisionNumber() {
-			return this.commit.getId();
+		public byte[] getBytes() {
+			try {
+				return blobCache.load(this.repository, this.contentsId);
+			} catch (Exception e) {
+				return null;
+			}
 		}
+	}
 
-		/**
-		 * Returns the username of the person who submitted this revision.
-		 * 
-		 * @return the value from Subversion
-		 */
-		public String getAuthor() {
-			return this.commit.getCommitterIdent().toExternalString();
+	/**
+	 * Lets JGit operations, such as rename detection, stop early once the load is
+	 * cancelled. JGit threads are not interrupted instead, because an interrupt
+	 * closes the pack files they are reading.
+	 */
+	private class CancellationMonitor implements ProgressMonitor {
+		public void start(int totalTasks) {
 		}
 
-		/**
-		 * Returns the date on which the revision was submitted.
-		 * 
-		 * @return the value from Subversion
-		 */
-		public String getDate() {
-			Calendar c = Calendar.getInstance();
-			c.setTimeInMillis(this.commit.getCommitTime() * 1000);
-			return dateFormat.format(c.getTime());
+		public void beginTask(String title, int totalWork) {
 		}
 
-		/**
-		 * Returns the log message accompanying the submission of this revision.
-		 * 
-		 * @return the value from Subversion
-		 */
-		public String getLogMessage() {
-			return this.commit.getFullMessage();
+		public void update(int completed) {
 		}
 
-		/**
-		 * Returns the contents of the file that was submitted.
-		 */
-		public String getContents() {
-			ObjectLoader loader;
-			try {
-				loader = this.repository.open(this.contentsId);
-			} catch (Exception e) {
-				return null;
-			}
-			
-			byte[] contents = loader.getCachedBytes();
-			return new String(contents, Constants.CHARSET);
+		public void endTask() {
+		}
+
+		public boolean isCancelled() {
+			return GitLoader.this.isCancelled();
+		}
+	}
+
+	/**
+	 * Returns the date on which the commit was made.
+	 * 
+	 * @param commit  the commit
+	 * @return  the formatted commit time
+	 */
+	private static String formatDate(RevCommit commit) {
+		Calendar c = Calendar.getInstance();
+		c.setTimeInMillis(commit.getCommitTime() * 1000L);
+		synchronized (dateFormat) {
+			return dateFormat.format(c.getTime());
 		}
 	}
 
@@ -119,25 +138,17 @@ public class GitLoader extends ScmLoader {
 	 * @param password
 	 *            password, or null for anonymous
 	 * @param limit
-	 *            maximum number of revisions to download
+	 *            maximum number of revisions to download, or 0 for no limit
 	 * @param afterLoad
 	 *            operation to run after the load finishes
 	 */
 	protected void loadRevisionsProper(String filePath, int limit)
 			throws Exception {
 		try {
-			loadedCount = totalCount = 1;
-			FileRepositoryBuilder repositoryBuilder = new FileRepositoryBuilder();
-			if (filePath.startsWith("~/")) {
-				String home = System.getenv("HOME");
-				if (home.isEmpty()) home = System.getenv("USERPROFILE");
-				filePath = filePath.replaceFirst("^~", home);
-			}
-			File target = new File(filePath).getAbsoluteFile();
-			Repository repository = repositoryBuilder
-					.readEnvironment()
-					.findGitDir(target)
-					.build();
+			loadedCount = 0;
+			totalCount = Math.max(limit, 0);
+			File target = target(filePath);
+			Repository repository = openRepository(target);
 
 			File workTree = repository.getWorkTree();
 
@@ -146,7 +157,6 @@ public class GitLoader extends ScmLoader {
 				if (revisions == null)
 					revisions = new ArrayList();
 				System.err.println("Cannot time-lapse view directory");
-				setLoading(false);
 				return;
 			}
 
@@ -156,49 +166,337 @@ public class GitLoader extends ScmLoader {
 				walker.dispose();
 			}
 			
-			walker = new RevWalk(repository);
-			RevCommit startCommit = walker.parseCommit(HEAD);
-			
-			List<String> filterPaths = new ArrayList<String>(1);
-			filterPaths.add(repositoryPath);
-
-			walker.markStart(startCommit);
-			TreeFilter filter = AndTreeFilter.create(new TreeFilter[] {
-					TreeFilter.ANY_DIFF,
-					FollowFilter.create(repositoryPath),
-					PathFilter.create(repositoryPath)
-			});
-			walker.setTreeFilter(filter);
-
-			RevCommitList<RevCommit> commitList = new RevCommitList<RevCommit>();
-			commitList.source(walker);
-			commitList.fillTo(limit);
-			
-			totalCount = commitList.size();
-			
-			revisions = new LinkedList<GitRevision>();
-			
-			for (RevCommit commit : commitList) {
-				TreeWalk treeWalker = TreeWalk.forPath(repository, repositoryPath, commit.getTree());
-				if (treeWalker == null) continue;
-				
-				treeWalker.setRecursive(true);
-				CanonicalTreeParser parser = treeWalker.getTree(0, CanonicalTreeParser.class);
-				
-				while (!parser.eof()) {
-					if (repositoryPath.equals(parser.getEntryPathString())) {
-						GitRevision rev = new GitRevision(repository, commit, parser.getEntryObjectId());
-						revisions.add(0, rev);
-					}
-					
-					parser.next();
+			HistoryFilter filter = getHistoryFilter();
+			String historyKey = repository.getDirectory().getAbsolutePath() + ":" + repositoryPath;
+			History history = getRevisionStore() == null ? null : getRevisionStore().getHistory(historyKey);
+			if (!filter.isEmpty()) {
+				ChangedPathIndex index = pathIndex(repository, HEAD);
+				walker = new RevWalk(repository);
+				walker.setRevFilter(revFilter(filter));
+				walker.markStart(walker.parseCommit(HEAD));
+				revisions = walk(repository, walker, repositoryPath, limit, index);
+			} else if (history != null && HEAD.name().equals(history.get("head")) && covers(history, limit)) {
+				revisions = storedRevisions(repository, history, limit);
+			} else {
+				ChangedPathIndex index = pathIndex(repository, HEAD);
+				walker = new RevWalk(repository);
+				walker.markStart(walker.parseCommit(HEAD));
+				revisions = walk(repository, walker, repositoryPath, limit, index);
+				if (getRevisionStore() != null && !isCancelled()) {
+					saveHistory(historyKey, HEAD, limit, revisions);
 				}
 			}
+			totalCount = loadedCount;
 		} catch (Exception e) {
+			if (isCancelled()) { return; }
 			e.printStackTrace();
 			System.exit(1);
+		}
+	}
+
+	/**
+	 * Builds a list of the revisions made to the given file since the given revision,
+	 * walking only the commits that are reachable from HEAD but not from it.
+	 * 
+	 * @param filePath  path of the file in a Git working tree
+	 * @param newest  the newest revision already loaded
+	 * @param limit  maximum number of revisions to download, or 0 for no limit
+	 */
+	protected void refreshRevisionsProper(String filePath, Revision newest, int limit) throws Exception {
+		loadedCount = 0;
+		totalCount = Math.max(limit, 0);
+		File target = target(filePath);
+		Repository repository = openRepository(target);
+		String repositoryPath = Repository.stripWorkDir(repository.getWorkTree(), target);
+		ObjectId HEAD = repository.resolve(Constants.HEAD);
+
+		if (walker != null) {
+			walker.dispose();
+		}
+
+		HistoryFilter filter = getHistoryFilter();
+		ChangedPathIndex index = pathIndex(repository, HEAD);
+		walker = new RevWalk(repository);
+		if (!filter.isEmpty()) { walker.setRevFilter(revFilter(filter)); }
+		walker.markStart(walker.parseCommit(HEAD));
+		walker.markUninteresting(walker.parseCommit(ObjectId.fromString((String) newest.getRevisionNumber())));
+		revisions = walk(repository, walker, repositoryPath, limit, index);
+		if (!revisions.isEmpty() && revisions.get(0).contentsId.equals(((GitRevision) newest).contentsId)) {
+			// The commits since the newest revision that left the file as it was
+			revisions.remove(0);
+			loadedCount--;
+		}
+		totalCount = loadedCount;
+	}
+
+	/**
+	 * Returns the RevWalk filter for the date range and author. The RevWalk applies it
+	 * to each commit's header before the commit is returned, so the trees of the
+	 * commits outside the filter are never read; once a commit is older than the start
+	 * of the date range, the walk stops.
+	 * 
+	 * @param filter  a filter that is not empty
+	 * @return  the equivalent RevFilter
+	 */
+	private RevFilter revFilter(HistoryFilter filter) {
+		List<RevFilter> filters = new ArrayList<RevFilter>();
+		if (filter.getSince() != null && filter.getUntil() != null) {
+			filters.add(CommitTimeRevFilter.between(filter.getSince(), filter.getUntil()));
+		} else if (filter.getSince() != null) {
+			filters.add(CommitTimeRevFilter.after(filter.getSince()));
+		} else if (filter.getUntil() != null) {
+			filters.add(CommitTimeRevFilter.before(filter.getUntil()));
+		}
+		if (filter.getAuthor() != null) {
+			filters.add(AuthorRevFilter.create(filter.getAuthor()));
+		}
+		return filters.size() == 1 ? filters.get(0) : AndRevFilter.create(filters);
+	}
+
+	/**
+	 * Returns the changed-path index of the repository, adding the commits made since
+	 * it was last updated.
+	 * 
+	 * @param repository  the Git repository
+	 * @param head  the commit from which the file's history will be walked
+	 * @return  the index, or null if no index directory has been set
+	 */
+	private ChangedPathIndex pathIndex(Repository repository, ObjectId head) throws IOException {
+		if (pathIndexDirectory == null) { return null; }
+		File file = new File(pathIndexDirectory, RevisionStore.hash(repository.getDirectory().getAbsolutePath().getBytes("UTF-8")) + ".idx");
+		if (pathIndex == null || !file.equals(pathIndexFile)) {
+			pathIndex = new ChangedPathIndex(file);
+			pathIndexFile = file;
+		}
+		pathIndex.update(repository, head, new CancellationMonitor());
+		pathIndex.save();
+		return pathIndex;
+	}
+
+	/**
+	 * Sets the directory in which to keep a changed-path index per repository. The
+	 * index takes a while to build the first time, after which walks skip reading the
+	 * trees of commits that did not touch the file.
+	 * 
+	 * @param pathIndexDirectory  the directory, or null to walk without an index
+	 */
+	public void setPathIndexDirectory(File pathIndexDirectory) {
+		this.pathIndexDirectory = pathIndexDirectory;
+	}
+
+	/**
+	 * Returns the absolute file for the given path, expanding a leading ~ to the home directory.
+	 * 
+	 * @param filePath  path of the file in a Git working tree
+	 * @return  the absolute file
+	 */
+	private File target(String filePath) {
+		if (filePath.startsWith("~/")) {
+			String home = System.getenv("HOME");
+			if (home.isEmpty()) home = System.getenv("USERPROFILE");
+			filePath = filePath.replaceFirst("^~", home);
+		}
+		return new File(filePath).getAbsoluteFile();
+	}
+
+	/**
+	 * Opens the Git repository containing the given file.
+	 * 
+	 * @param target  an absolute file in a Git working tree
+	 * @return  the repository
+	 */
+	private Repository openRepository(File target) throws IOException {
+		FileRepositoryBuilder repositoryBuilder = new FileRepositoryBuilder();
+		return repositoryBuilder
+				.readEnvironment()
+				.findGitDir(target)
+				.build();
+	}
+
+	/**
+	 * Returns whether the stored history contains the newest limit revisions.
+	 * 
+	 * @param history  a history stored for the same file and HEAD
+	 * @param limit  maximum number of revisions to load, or 0 for no limit
+	 * @return  whether the history can be used instead of walking the repository
+	 */
+	private boolean covers(History history, int limit) {
+		int storedLimit = Integer.parseInt(history.get("limit"));
+		return storedLimit <= 0 || history.size() < storedLimit || (limit > 0 && limit <= storedLimit);
+	}
+
+	/**
+	 * Builds the revisions from the stored history. The contents are read from the
+	 * Git repository, which already stores them by blob id.
+	 * 
+	 * @param repository  the Git repository
+	 * @param history  a history stored for the same file and HEAD
+	 * @param limit  maximum number of revisions to load, or 0 for no limit
+	 * @return  the revisions of the file, oldest first
+	 */
+	private List<GitRevision> storedRevisions(Repository repository, History history, int limit) {
+		List<GitRevision> revisions = new ArrayList<GitRevision>();
+		int start = limit > 0 ? Math.max(0, history.size() - limit) : 0;
+		for (int i = start; i < history.size(); i++) {
+			revisions.add(new GitRevision(repository, history.getNumber(i), history.getAuthor(i), history.getDate(i), history.getLogMessage(i), ObjectId.fromString(history.getContentHash(i))));
+			loadedCount++;
+		}
+		return revisions;
+	}
+
+	/**
+	 * Records the walked revisions in the revision store, keyed by the HEAD they were walked from.
+	 * 
+	 * @param historyKey  the Git directory and the file's path within the repository
+	 * @param head  the commit from which the history was walked
+	 * @param limit  the limit used for the walk
+	 * @param revisions  the revisions of the file, oldest first
+	 */
+	private void saveHistory(String historyKey, ObjectId head, int limit, List<GitRevision> revisions) throws IOException {
+		History history = new History();
+		history.set("head", head.name());
+		history.set("limit", String.valueOf(limit));
+		for (GitRevision revision : revisions) {
+			history.add(revision, revision.contentsId.name());
+		}
+		getRevisionStore().putHistory(historyKey, history);
+	}
+
+	/**
+	 * Walks the commits let through the walker's filter, if any, newest first, keeping
+	 * each one whose blob id for the file differs from that of every parent, as git log
+	 * does for a path: a merge that took the file from one of its parents is not a
+	 * change, and neither is a commit on a side branch that left the file alone. Each
+	 * revision is published as soon as its commit is found. The blob ids looked up for
+	 * the parents are kept until the parents themselves are walked, so in a linear
+	 * history each tree is read once; if the changed-path index shows that a commit did
+	 * not touch the file, its tree is not read at all, and its blob id, if known, is
+	 * passed on to its first parent. When the first parent lacks the file, the commit is
+	 * checked for a rename and the walk continues under the old path.
+	 * 
+	 * @param repository  the Git repository
+	 * @param walker  a RevWalk whose filter, if any, and start commits have been set
+	 * @param path  the file's path within the repository
+	 * @param limit  maximum number of revisions to return, or 0 for no limit
+	 * @param index  the changed-path index of the repository, or null
+	 * @return  the revisions of the file, oldest first
+	 */
+	private List<GitRevision> walk(Repository repository, RevWalk walker, String path, int limit, ChangedPathIndex index) throws Exception {
+		LinkedList<GitRevision> revisions = new LinkedList<GitRevision>();
+		ProgressMonitor monitor = new CancellationMonitor();
+		TreeWalk treeWalk = new TreeWalk(repository);
+		treeWalk.setRecursive(true);
+		// Blob ids looked up for commits not walked yet; the zero id stands for a missing file
+		Map<ObjectId, ObjectId> blobIds = new HashMap<ObjectId, ObjectId>();
+		try {
+			for (RevCommit commit = walker.next(); commit != null; commit = walker.next()) {
+				if (monitor.isCancelled()) { break; }
+				if (index != null && commit.getParentCount() > 0 && !index.mayHaveChanged(commit, path)) {
+					ObjectId blobId = blobIds.remove(commit);
+					if (blobId != null) { blobIds.put(commit.getParent(0).copy(), blobId); }
+					continue;
+				}
+				ObjectId blobId = blobId(treeWalk, commit, path, blobIds);
+				blobIds.remove(commit);
+				if (blobId == null) { continue; }
+				boolean changed = true;
+				for (int i = 0; i < commit.getParentCount() && changed; i++) {
+					changed = !blobId.equals(blobId(treeWalk, walker.parseCommit(commit.getParent(i)), path, blobIds));
+				}
+				if (changed && commit.getParentCount() > 0) {
+					RevCommit parent = walker.parseCommit(commit.getParent(0));
+					if (blobId(treeWalk, parent, path, blobIds) == null) {
+						String oldPath = renamedFrom(repository, walker, commit, path, index, monitor);
+						if (oldPath != null) {
+							path = oldPath;
+							blobIds.clear();
+							changed = !blobId.equals(blobId(treeWalk, parent, path, blobIds));
+						}
+					}
+				}
+				if (!changed) { continue; }
+				revisions.addFirst(new GitRevision(repository, commit, blobId));
+				publish(revisions.getFirst());
+				loadedCount++;
+				if (limit > 0 && revisions.size() >= limit) { break; }
+			}
+			return revisions;
+		} finally {
+			treeWalk.release();
+		}
+	}
+
+	/**
+	 * Returns the id of the file's blob in the given commit, from the blob ids already
+	 * looked up if possible. The id is kept until the commit itself is walked, when it
+	 * is taken out.
+	 * 
+	 * @param treeWalk  a recursive TreeWalk to reuse
+	 * @param commit  the commit whose tree to search
+	 * @param path  the file's path within the repository
+	 * @param blobIds  the blob ids looked up for commits not walked yet
+	 * @return  the blob id, or null if the commit does not contain the file
+	 */
+	private ObjectId blobId(TreeWalk treeWalk, RevCommit commit, String path, Map<ObjectId, ObjectId> blobIds) throws Exception {
+		ObjectId blobId = blobIds.get(commit);
+		if (blobId == null) {
+			blobId = blobId(treeWalk, commit, path);
+			blobIds.put(commit.copy(), blobId == null ? ObjectId.zeroId() : blobId);
+		}
+		return ObjectId.zeroId().equals(blobId) ? null : blobId;
+	}
+
+	/**
+	 * Returns the id of the file's blob in the given commit.
+	 * 
+	 * @param treeWalk  a recursive TreeWalk to reuse
+	 * @param commit  the commit whose tree to search
+	 * @param path  the file's path within the repository
+	 * @return  the blob id, or null if the commit does not contain the file
+	 */
+	private ObjectId blobId(TreeWalk treeWalk, RevCommit commit, String path) throws Exception {
+		treeWalk.reset(commit.getTree());
+		treeWalk.setFilter(PathFilter.create(path));
+		while (treeWalk.next()) {
+			if (!treeWalk.isSubtree() && path.equals(treeWalk.getPathString())) {
+				return treeWalk.getObjectId(0);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the path from which the commit renamed or copied the file.
+	 * 
+	 * @param repository  the Git repository
+	 * @param walker  the RevWalk that produced the commit
+	 * @param commit  the commit in which the file appeared at the path
+	 * @param path  the file's path within the repository
+	 * @param index  the changed-path index of the repository, or null
+	 * @param monitor  stops the rename detection if the load is cancelled
+	 * @return  the file's previous path, or null if the commit did not rename it
+	 */
+	private String renamedFrom(Repository repository, RevWalk walker, RevCommit commit, String path, ChangedPathIndex index, ProgressMonitor monitor) throws Exception {
+		if (commit.getParentCount() == 0) { return null; }
+		// A commit that did not touch the path (e.g., a merge reached from a side branch lacking the file) did not rename it
+		if (index != null && !index.mayHaveChanged(commit, path)) { return null; }
+		RevCommit parent = walker.parseCommit(commit.getParent(0));
+		TreeWalk treeWalk = new TreeWalk(repository);
+		try {
+			treeWalk.setRecursive(true);
+			treeWalk.addTree(parent.getTree());
+			treeWalk.addTree(commit.getTree());
+			treeWalk.setFilter(TreeFilter.ANY_DIFF);
+			RenameDetector renameDetector = new RenameDetector(repository);
+			renameDetector.addAll(DiffEntry.scan(treeWalk));
+			for (DiffEntry entry : renameDetector.compute(monitor)) {
+				if ((entry.getChangeType() == ChangeType.RENAME || entry.getChangeType() == ChangeType.COPY) && path.equals(entry.getNewPath())) {
+					return entry.getOldPath();
+				}
+			}
+			return null;
 		} finally {
-			setLoading(false);
+			treeWalk.release();
 		}
 	}
 
@@ -218,7 +516,16 @@ public class GitLoader extends ScmLoader {
 	 * @return the number of revisions being downloaded.
 	 */
 	public int getTotalCount() {
-		return 0;
+		return totalCount;
+	}
+
+	/**
+	 * Returns the cache of blob contents shared by all Git revisions.
+	 * 
+	 * @return  the blob cache, whose hit and miss counts can be inspected
+	 */
+	public static BlobCache getBlobCache() {
+		return blobCache;
 	}
 
 	/**
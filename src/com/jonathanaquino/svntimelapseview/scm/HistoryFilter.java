@@ -0,0 +1,119 @@
+package com.jonathanaquino.svntimelapseview.scm;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+
+/**
+ * Restricts a load to the commits made within a date range and, optionally, by a
+ * given author.
+ */
+public class HistoryFilter {
+
+	/** A filter that keeps every commit */
+	public static final HistoryFilter NONE = new HistoryFilter(null, null, null);
+
+	/** The earliest commit time to keep, or null for no lower bound */
+	private final Date since;
+
+	/** The latest commit time to keep, or null for no upper bound */
+	private final Date until;
+
+	/** Text to look for in the author's name or email, or null for any author */
+	private final String author;
+
+	/**
+	 * Creates a new HistoryFilter.
+	 *
+	 * @param since  the earliest commit time to keep, or null for no lower bound
+	 * @param until  the latest commit time to keep, or null for no upper bound
+	 * @param author  text to look for in the author's name or email, or null for any author
+	 */
+	public HistoryFilter(Date since, Date until, String author) {
+		this.since = since;
+		this.until = until;
+		this.author = author;
+	}
+
+	/**
+	 * Creates a filter from the values typed by the user.
+	 *
+	 * @param since  the first day to keep, as yyyy-MM-dd, or null or empty for no lower bound
+	 * @param until  the last day to keep, as yyyy-MM-dd, or null or empty for no upper bound
+	 * @param author  text to look for in the author's name or email, or null or empty for any author
+	 * @return  the filter
+	 */
+	public static HistoryFilter parse(String since, String until, String author) throws ParseException {
+		Date sinceDate = parseDay(since);
+		Date untilDate = parseDay(until);
+		if (untilDate != null) {
+			// Keep the commits made during the last day too
+			Calendar calendar = Calendar.getInstance();
+			calendar.setTime(untilDate);
+			calendar.add(Calendar.DAY_OF_MONTH, 1);
+			untilDate = new Date(calendar.getTimeInMillis() - 1);
+		}
+		author = author == null || author.trim().length() == 0 ? null : author.trim();
+		return new HistoryFilter(sinceDate, untilDate, author);
+	}
+
+	/**
+	 * Parses a day typed by the user.
+	 *
+	 * @param day  the day, as yyyy-MM-dd, or null or empty
+	 * @return  the start of the day, or null if no day was given
+	 */
+	private static Date parseDay(String day) throws ParseException {
+		if (day == null || day.trim().length() == 0) { return null; }
+		SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+		format.setLenient(false);
+		return format.parse(day.trim());
+	}
+
+	/**
+	 * Formats a day for display in a text field.
+	 *
+	 * @param date  the date, or null
+	 * @return  the day, as yyyy-MM-dd, or an empty string if the date is null
+	 */
+	public static String formatDay(Date date) {
+		return date == null ? "" : new SimpleDateFormat("yyyy-MM-dd").format(date);
+	}
+
+	/**
+	 * Returns the earliest commit time to keep.
+	 *
+	 * @return  the lower bound, or null if there is none
+	 */
+	public Date getSince() {
+		return since;
+	}
+
+	/**
+	 * Returns the latest commit time to keep.
+	 *
+	 * @return  the upper bound, or null if there is none
+	 */
+	public Date getUntil() {
+		return until;
+	}
+
+	/**
+	 * Returns the text to look for in the author's name or email.
+	 *
+	 * @return  the author, or null for any author
+	 */
+	public String getAuthor() {
+		return author;
+	}
+
+	/**
+	 * Returns whether the filter keeps every commit.
+	 *
+	 * @return  whether there is no date range and no author
+	 */
+	public boolean isEmpty() {
+		return since == null && until == null && author == null;
+	}
+}
@@ -0,0 +1,84 @@
+package com.jonathanaquino.svntimelapseview.scm;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the work of the loaders on named pools of daemon threads, which are created
+ * on first use and shared by all loaders. Loads of different files may run at the
+ * same time; the threads are named after their pool, e.g., scm-load-1, so that they
+ * can be told apart in a thread dump.
+ */
+public class LoadScheduler {
+
+	/** The pool that runs whole load jobs */
+	public static final String LOAD_POOL = "scm-load";
+
+	/** The scheduler shared by all loaders */
+	private static final LoadScheduler instance = new LoadScheduler();
+
+	/** The worker pools, keyed by name */
+	private final Map<String, ExecutorService> pools = new HashMap<String, ExecutorService>();
+
+	/**
+	 * Returns the scheduler shared by all loaders.
+	 *
+	 * @return  the scheduler
+	 */
+	public static LoadScheduler getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Returns the pool with the given name, creating it if necessary. Threads are
+	 * started as tasks arrive and stop after a minute without work.
+	 *
+	 * @param name  the name of the pool, which prefixes the names of its threads
+	 * @return  the pool
+	 */
+	public synchronized ExecutorService getPool(final String name) {
+		ExecutorService pool = pools.get(name);
+		if (pool == null) {
+			pool = Executors.newCachedThreadPool(new ThreadFactory() {
+				private final AtomicInteger threadCount = new AtomicInteger();
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			pools.put(name, pool);
+		}
+		return pool;
+	}
+
+	/**
+	 * Runs the task on the named pool.
+	 *
+	 * @param poolName  the name of the pool
+	 * @param task  the work to do
+	 * @return  a Future that is done when the task finishes
+	 */
+	public Future<?> submit(String poolName, Runnable task) {
+		return getPool(poolName).submit(task);
+	}
+
+	/**
+	 * Waits for the task to finish, ignoring its outcome.
+	 *
+	 * @param future  the Future returned by submit
+	 */
+	public static void await(Future<?> future) throws InterruptedException {
+		try {
+			future.get();
+		} catch (ExecutionException e) {
+			// The task reports its own errors
+		}
+	}
+}
@@ -1,9 +1,17 @@
 package com.jonathanaquino.svntimelapseview.scm;
 
+import java.util.AbstractList;
 import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.jonathanaquino.svntimelapseview.Closure;
+import com.jonathanaquino.svntimelapseview.Revision;
+import com.jonathanaquino.svntimelapseview.helpers.CharsetDetector;
 import com.jonathanaquino.svntimelapseview.helpers.MiscHelper;
+import com.jonathanaquino.svntimelapseview.storage.ContentStore;
+import com.jonathanaquino.svntimelapseview.storage.RevisionStore;
+import com.jonathanaquino.svntimelapseview.storage.SpillingContentStore;
 
 public abstract class ScmLoader {	
 	private volatile boolean loading = false;
@@ -11,16 +19,52 @@ public abstract class ScmLoader {
 	
 	private volatile String username;
 	private volatile String password;
-	
-	protected void setLoading(boolean loading) {
-		this.loading = loading;
-	}
+
+	/** Maximum number of requests the loader may have in flight at once. */
+	private volatile int concurrency = 4;
+
+	/** Persistent store of previously loaded revisions, or null to always download. */
+	private volatile RevisionStore revisionStore;
+
+	/** Number of bytes of heap that the contents of a file's revisions may take before they are kept in a mapped file instead. */
+	private volatile long heapBudget = Runtime.getRuntime().maxMemory() / 4;
+
+	/** Files with more bytes than this are not compared line by line. */
+	private volatile long maxDiffBytes = 4 * 1024 * 1024;
+
+	/** Files with more lines than this are not compared line by line. */
+	private volatile long maxDiffLines = 100000;
+
+	/** Restricts loads to the commits within a date range or by an author. */
+	private volatile HistoryFilter historyFilter = HistoryFilter.NONE;
+
+	/** The revisions published in the current job, newest first; only the first publishedCount elements are used. */
+	private Revision[] publishedRevisions = new Revision[0];
+
+	/** Number of revisions published in the current job. */
+	private int publishedCount = 0;
+
+	/** Operation to run each time a revision is published, or null. */
+	private volatile Closure afterPublish;
+
+	/** Identifies the newest job; a job whose number is older has been superseded and its results are dropped. */
+	private final AtomicInteger generation = new AtomicInteger();
+
+	/** The newest job, or null if none has been scheduled. */
+	private Future<?> job;
+
+	/** The number of the job that is running or ran last. */
+	private volatile int runningGeneration;
 	
 	public String KEY()
 	{
 		return ScmFactory.KEY(getClass());
 	}
 	
+	/**
+	 * Aborts the requests in flight for the running job. Called when the job is
+	 * cancelled or superseded, after isCancelled has started returning true.
+	 */
 	protected void cancelHook()
 	{
 	}
@@ -41,6 +85,136 @@ public abstract class ScmLoader {
 		this.password = password;
 	}
 
+	/**
+	 * Returns the maximum number of requests the loader may have in flight at once.
+	 *
+	 * @return  the number of concurrent sessions or threads to use
+	 */
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	/**
+	 * Sets the maximum number of requests the loader may have in flight at once.
+	 *
+	 * @param concurrency  the number of concurrent sessions or threads to use; at least 1
+	 */
+	public void setConcurrency(int concurrency) {
+		this.concurrency = Math.max(1, concurrency);
+	}
+
+	/**
+	 * Returns the persistent store of previously loaded revisions.
+	 *
+	 * @return  the store, or null if revisions are always downloaded
+	 */
+	public RevisionStore getRevisionStore() {
+		return revisionStore;
+	}
+
+	/**
+	 * Sets the persistent store of previously loaded revisions.
+	 *
+	 * @param revisionStore  the store, or null to always download
+	 */
+	public void setRevisionStore(RevisionStore revisionStore) {
+		this.revisionStore = revisionStore;
+	}
+
+	/**
+	 * Returns the number of bytes of heap that the contents of a file's revisions may
+	 * take before they are kept in a memory-mapped file instead.
+	 *
+	 * @return  the heap budget, in bytes
+	 */
+	public long getHeapBudget() {
+		return heapBudget;
+	}
+
+	/**
+	 * Sets the number of bytes of heap that the contents of a file's revisions may
+	 * take before they are kept in a memory-mapped file instead.
+	 *
+	 * @param heapBudget  the heap budget, in bytes
+	 */
+	public void setHeapBudget(long heapBudget) {
+		this.heapBudget = heapBudget;
+	}
+
+	/**
+	 * Returns the filter that restricts loads to the commits within a date range or by an author.
+	 *
+	 * @return  the filter, which is HistoryFilter.NONE if every commit is loaded
+	 */
+	public HistoryFilter getHistoryFilter() {
+		return historyFilter;
+	}
+
+	/**
+	 * Sets the filter that restricts loads to the commits within a date range or by an
+	 * author. Loaders that cannot filter their history ignore it.
+	 *
+	 * @param historyFilter  the filter, or null to load every commit
+	 */
+	public void setHistoryFilter(HistoryFilter historyFilter) {
+		this.historyFilter = historyFilter == null ? HistoryFilter.NONE : historyFilter;
+	}
+
+	/**
+	 * Creates a store for the contents of the revisions of a job, which spills to a
+	 * memory-mapped file once the heap budget is used up.
+	 *
+	 * @return  a new, empty store
+	 */
+	protected ContentStore createContentStore() {
+		return new SpillingContentStore(heapBudget, null);
+	}
+
+	/**
+	 * Sets the size above which files are not compared line by line.
+	 *
+	 * @param maxDiffBytes  the maximum number of bytes of a file to compare line by line
+	 */
+	public void setMaxDiffBytes(long maxDiffBytes) {
+		this.maxDiffBytes = maxDiffBytes;
+	}
+
+	/**
+	 * Sets the number of lines above which files are not compared line by line.
+	 *
+	 * @param maxDiffLines  the maximum number of lines of a file to compare line by line
+	 */
+	public void setMaxDiffLines(long maxDiffLines) {
+		this.maxDiffLines = maxDiffLines;
+	}
+
+	/**
+	 * Classifies a file from what the detector saw of its bytes.
+	 *
+	 * @param detector  a CharsetDetector that has seen all the bytes of the file
+	 * @return  Revision.BINARY, Revision.OVERSIZED, or Revision.NORMAL
+	 */
+	protected int classify(CharsetDetector detector) {
+		if (detector.isBinary()) { return Revision.BINARY; }
+		if (detector.getByteCount() > maxDiffBytes || detector.getLineCount() > maxDiffLines) { return Revision.OVERSIZED; }
+		return Revision.NORMAL;
+	}
+
+	/**
+	 * Returns the kind of the revision, classifying it from its bytes if the loader
+	 * did not do so while fetching it.
+	 *
+	 * @param revision  a revision loaded by this loader
+	 * @return  Revision.BINARY, Revision.OVERSIZED, or Revision.NORMAL
+	 */
+	public int classify(Revision revision) {
+		if (revision.getKind() == Revision.UNKNOWN) {
+			byte[] bytes = revision.getBytes();
+			revision.setKind(bytes == null ? Revision.NORMAL : classify(CharsetDetector.detect(bytes)));
+		}
+		return revision.getKind();
+	}
+
 	/**
 	 * Builds a list of revisions for the given file, using a thread.
 	 *
@@ -51,22 +225,97 @@ public abstract class ScmLoader {
 	 * @param afterLoad  operation to run after the load finishes
 	 */
 	public void loadRevisions(final String filePathOrUrl, final int limit, final Closure afterLoad) throws Exception {
-		loading = true;
+		loadRevisions(filePathOrUrl, limit, null, afterLoad);
+	}
+
+	/**
+	 * Builds a list of revisions for the given file, using a thread. As each revision
+	 * arrives, newest first, it is added to the published revisions and afterPublish is run.
+	 *
+	 * @param filePathOrUrl  Subversion URL or working-copy file path
+	 * @param limit  maximum number of revisions to download
+	 * @param afterPublish  operation to run on the loading thread after each revision is published, or null
+	 * @param afterLoad  operation to run after the load finishes
+	 * @see #getPublishedRevisions()
+	 */
+	public void loadRevisions(final String filePathOrUrl, final int limit, Closure afterPublish, final Closure afterLoad) throws Exception {
+		schedule(new Closure() {
+			public void execute() throws Exception {
+				loadRevisionsProper(filePathOrUrl, limit);
+			}
+		}, afterPublish, afterLoad);
+	}
+
+	/**
+	 * Builds a list of the revisions made to the given file since the given revision,
+	 * using a thread. Afterwards, getRevisions returns only the new revisions.
+	 *
+	 * @param filePathOrUrl  Subversion URL or working-copy file path
+	 * @param newest  the newest revision already loaded
+	 * @param limit  maximum number of revisions to download
+	 * @param afterLoad  operation to run after the load finishes
+	 */
+	public void refreshRevisions(final String filePathOrUrl, final Revision newest, final int limit, final Closure afterLoad) throws Exception {
+		schedule(new Closure() {
+			public void execute() throws Exception {
+				refreshRevisionsProper(filePathOrUrl, newest, limit);
+			}
+		}, null, afterLoad);
+	}
+
+	/**
+	 * Runs the load on the scheduler's load pool, superseding any earlier job of this
+	 * loader: the earlier job is cancelled through cancelHook, and the new one starts once it has returned,
+	 * so that two jobs never write the loader's revisions at the same time. The
+	 * callbacks of a superseded job are never run, so a stale history cannot replace
+	 * the new one.
+	 *
+	 * @param load  the operation that builds the revisions
+	 * @param afterPublish  operation to run after each revision is published, or null
+	 * @param afterLoad  operation to run after the load finishes
+	 */
+	private synchronized void schedule(final Closure load, final Closure afterPublish, final Closure afterLoad) {
+		final int jobGeneration = generation.incrementAndGet();
+		final Future<?> previousJob = job;
 		cancelled = false;
-		Thread thread = new Thread(new Runnable() {
+		if (previousJob != null) { cancelHook(); }
+		loading = true;
+		job = LoadScheduler.getInstance().submit(LoadScheduler.LOAD_POOL, new Runnable() {
 			public void run() {
+				try {
+					if (previousJob != null) { LoadScheduler.await(previousJob); }
+				} catch (InterruptedException e) {
+					return;
+				}
+				if (!isCurrent(jobGeneration)) { return; }
+				runningGeneration = jobGeneration;
+				resetPublishedRevisions(afterPublish, jobGeneration);
 				MiscHelper.handleExceptions(new Closure() {
 					public void execute() throws Exception {
-						try{
-							loadRevisionsProper(filePathOrUrl, limit);
-							afterLoad.execute();
+						try {
+							load.execute();
+						} catch (Exception e) {
+							// Cancelling may abort requests midway; that is not an error
+							if (isCancelled()) { return; }
+							throw e;
 						} finally {
+							if (isCurrent(jobGeneration)) { loading = false; }
 						}
+						if (isCurrent(jobGeneration)) { afterLoad.execute(); }
 					}
 				});
 			}
 		});
-		thread.start();
+	}
+
+	/**
+	 * Returns whether the job is the newest one.
+	 *
+	 * @param jobGeneration  the number given to the job when it was scheduled
+	 * @return  false if a later job has been scheduled
+	 */
+	private boolean isCurrent(int jobGeneration) {
+		return generation.get() == jobGeneration;
 	}
 
 	/**
@@ -81,17 +330,58 @@ public abstract class ScmLoader {
 	protected abstract void loadRevisionsProper(String filePathOrUrl, int limit) throws Exception;
 
 	/**
-	 * Tries to determine the character encoding of the given byte array.
-	 * 
-	 * @param array  the bytes of the string to analyze
-	 * @return  the encoding (e.g., UTF-8) or null if it could not be determined.
+	 * Builds a list of the revisions made to the given file since the given revision.
+	 *
+	 * @param filePathOrUrl  Subversion URL or working-copy file path
+	 * @param newest  the newest revision already loaded
+	 * @param limit  maximum number of revisions to download
+	 */
+	protected abstract void refreshRevisionsProper(String filePathOrUrl, Revision newest, int limit) throws Exception;
+
+	/**
+	 * Starts a new, empty list of published revisions. Snapshots of the previous list are unaffected.
+	 *
+	 * @param afterPublish  operation to run after each revision is published, or null
+	 * @param jobGeneration  the number of the job, whose revisions are no longer announced once it is superseded
 	 */
-	protected String determineEncoding(byte[] array) {
-		if (array.length <= 2) { return null; }
-		if (array[0] == (byte)0xFF && array[1] == (byte)0xFE) { return "UTF-16"; }
-		if (array[0] == (byte)0xFE && array[1] == (byte)0xFF) { return "UTF-16"; }
-		if (array[0] == (byte)0xEF && array[1] == (byte)0xBB) { return "UTF-8"; }
-		return null;
+	private synchronized void resetPublishedRevisions(final Closure afterPublish, final int jobGeneration) {
+		publishedRevisions = new Revision[0];
+		publishedCount = 0;
+		this.afterPublish = afterPublish == null ? null : new Closure() {
+			public void execute() throws Exception {
+				if (isCurrent(jobGeneration)) { afterPublish.execute(); }
+			}
+		};
+	}
+
+	/**
+	 * Makes a revision available before the load finishes. Loaders that publish must
+	 * publish every revision they load, newest first, so that the published revisions
+	 * end up the same as those returned by getRevisions.
+	 *
+	 * @param revision  the revision that was loaded, older than those published before it
+	 */
+	protected void publish(Revision revision) throws Exception {
+		synchronized (this) {
+			if (publishedCount == publishedRevisions.length) {
+				Revision[] array = new Revision[Math.max(16, publishedCount * 2)];
+				System.arraycopy(publishedRevisions, 0, array, 0, publishedCount);
+				publishedRevisions = array;
+			}
+			publishedRevisions[publishedCount++] = revision;
+		}
+		Closure closure = afterPublish;
+		if (closure != null) { closure.execute(); }
+	}
+
+	/**
+	 * Returns the revisions published so far in the current job. The snapshot does not
+	 * change as more revisions arrive; call this again for a larger one.
+	 *
+	 * @return  an immutable list of the published revisions, oldest first
+	 */
+	public synchronized List getPublishedRevisions() {
+		return new RevisionSnapshot(publishedRevisions, publishedCount);
 	}
 
 	/**
@@ -129,12 +419,45 @@ public abstract class ScmLoader {
 	 */
 	public void cancel() {
 		if (!cancelled) {
-			cancelHook();
 			cancelled = true;
+			cancelHook();
 		}
 	}
 	
+	/**
+	 * Returns whether the running job should stop, because the user cancelled it or
+	 * a newer job superseded it.
+	 *
+	 * @return  whether loaders should stop downloading and return what they have
+	 */
 	protected boolean isCancelled() {
-		return cancelled;
+		return cancelled || runningGeneration != generation.get();
+	}
+
+	/**
+	 * An immutable view of the first size published revisions, oldest first. The loader
+	 * only ever appends to the array, so the elements the snapshot covers never change.
+	 */
+	private static class RevisionSnapshot extends AbstractList {
+
+		/** The published revisions, newest first */
+		private final Revision[] newestFirst;
+
+		/** The number of revisions in the snapshot */
+		private final int size;
+
+		public RevisionSnapshot(Revision[] newestFirst, int size) {
+			this.newestFirst = newestFirst;
+			this.size = size;
+		}
+
+		public Object get(int index) {
+			if (index < 0 || index >= size) { throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size); }
+			return newestFirst[size - 1 - index];
+		}
+
+		public int size() {
+			return size;
+		}
 	}
 }
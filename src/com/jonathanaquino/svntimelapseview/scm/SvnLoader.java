@@ -1,29 +1,57 @@
 package com.jonathanaquino.svntimelapseview.scm;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.lang.StringUtils;
+import org.tmatesoft.svn.core.ISVNCanceller;
+import org.tmatesoft.svn.core.ISVNLogEntryHandler;
+import org.tmatesoft.svn.core.SVNCancelException;
 import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNLogEntry;
 import org.tmatesoft.svn.core.SVNProperties;
+import org.tmatesoft.svn.core.SVNProperty;
 import org.tmatesoft.svn.core.SVNRevisionProperty;
 import org.tmatesoft.svn.core.SVNURL;
-import org.tmatesoft.svn.core.internal.io.dav.DAVRepositoryFactory;
-import org.tmatesoft.svn.core.internal.io.fs.FSRepositoryFactory;
-import org.tmatesoft.svn.core.internal.io.svn.SVNRepositoryFactoryImpl;
+import org.tmatesoft.svn.core.internal.wc.SVNFileUtil;
+import org.tmatesoft.svn.core.io.ISVNFileRevisionHandler;
 import org.tmatesoft.svn.core.io.SVNFileRevision;
 import org.tmatesoft.svn.core.io.SVNRepository;
-import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.io.diff.SVNDeltaProcessor;
+import org.tmatesoft.svn.core.io.diff.SVNDiffWindow;
 import org.tmatesoft.svn.core.wc.SVNClientManager;
 import org.tmatesoft.svn.core.wc.SVNRevision;
 import org.tmatesoft.svn.core.wc.SVNWCUtil;
 
 import com.jonathanaquino.svntimelapseview.Closure;
 import com.jonathanaquino.svntimelapseview.Revision;
+import com.jonathanaquino.svntimelapseview.helpers.CharsetDetector;
 import com.jonathanaquino.svntimelapseview.helpers.MiscHelper;
+import com.jonathanaquino.svntimelapseview.storage.ContentStore;
+import com.jonathanaquino.svntimelapseview.storage.RevisionStore;
+import com.jonathanaquino.svntimelapseview.storage.RevisionStore.History;
 
 
 /**
@@ -33,7 +61,7 @@ public class SvnLoader extends ScmLoader {
 	public static final String KEY = "svn";
 	
     /** Number of revisions downloaded for the current file. */
-    private volatile int loadedCount = 0;
+    private final AtomicInteger loadedCount = new AtomicInteger();
 
     /** Total number of revisions to download for the current file. */
     private volatile int totalCount = 0;
@@ -41,47 +69,515 @@ public class SvnLoader extends ScmLoader {
     /** The list of Revisions being downloaded. */
     private List revisions;
 
+    /** Whether to rebuild the revisions from the deltas streamed by getFileRevisions rather than download each full text. */
+    private volatile boolean deltaMode = false;
+
+    /** Holds the contents of the revisions loaded in the current job, as deltas between neighbouring revisions or in a mapped file. */
+    private ContentStore contentStore;
+
+    /** Hashes of the contents loaded in the current job, keyed by revision number, for the revision store. */
+    private Map contentHashes = Collections.synchronizedMap(new HashMap());
+
+    /** The pool whose threads download file revisions, each through its own session. */
+    private static final String FETCH_POOL = "svn-fetch";
+
+    /** Sessions opened by the current job and not yet closed, so that cancelling can abort their requests. */
+    private final Set openSessions = Collections.synchronizedSet(new HashSet());
+
+    /** Makes SVNKit operations of the current job fail once the job is cancelled. */
+    private final ISVNCanceller canceller = new ISVNCanceller() {
+        public void checkCancelled() throws SVNCancelException {
+            if (isCancelled()) { throw new SVNCancelException(); }
+        }
+    };
+
     /**
      * Builds a list of revisions for the given file.
      *
      * @param filePathOrUrl  Subversion URL or working-copy file path
+     * @param limit  maximum number of revisions to download, or 0 for no limit
+     */
+    protected void loadRevisionsProper(String filePathOrUrl, int limit) throws Exception {
+        loadRevisionsSince(filePathOrUrl, 0, limit);
+    }
+
+    /**
+     * Builds a list of the revisions made to the given file since the given revision.
+     *
+     * @param filePathOrUrl  Subversion URL or working-copy file path
+     * @param newest  the newest revision already loaded
+     * @param limit  maximum number of revisions to download, or 0 for no limit
+     */
+    protected void refreshRevisionsProper(String filePathOrUrl, Revision newest, int limit) throws Exception {
+        loadRevisionsSince(filePathOrUrl, ((Long) newest.getRevisionNumber()).longValue() + 1, limit);
+    }
+
+    /**
+     * Builds a list of the revisions made to the given file in or after the given revision.
+     *
+     * @param filePathOrUrl  Subversion URL or working-copy file path
+     * @param sinceRevision  the oldest revision to load, or 0 to load the file's entire history
+     * @param limit  maximum number of revisions to download, or 0 for no limit
+     */
+    private void loadRevisionsSince(String filePathOrUrl, long sinceRevision, int limit) throws Exception {
+        String username = getUsername();
+        String password = getPassword();
+
+        loadedCount.set(0);
+        totalCount = 0;
+        SVNURL fullUrl = svnUrl(filePathOrUrl, username, password);
+        String url = fullUrl.removePathTail().toString();
+        String filePath = fullUrl.getPath().replaceAll(".*/", "");
+        SVNRepository repository = repository(url, username, password);
+        try {
+            long endRevision = repository.getLatestRevision();
+            if (endRevision < sinceRevision) {
+                revisions = new ArrayList();
+                return;
+            }
+            List logRevisions = logRevisions(repository, filePath, sinceRevision, endRevision, limit);
+            totalCount = logRevisions.size();
+            if (sinceRevision > 0 && logRevisions.isEmpty()) {
+                revisions = new ArrayList();
+                return;
+            }
+            long startRevision = sinceRevision == 0 && (limit <= 0 || logRevisions.size() < limit) ? 0 : ((Long) logRevisions.get(logRevisions.size() - 1)).longValue();
+            String historyKey = repository.getRepositoryUUID(true) + fullUrl.getPath().substring(repository.getRepositoryRoot(true).getPath().length());
+            String window = StringUtils.join(logRevisions, ",");
+            History history = getRevisionStore() == null || sinceRevision > 0 ? null : getRevisionStore().getHistory(historyKey);
+            contentHashes.clear();
+            if (sinceRevision == 0 || contentStore == null) {
+                // A new load supersedes the revisions of the last one; a refresh adds to them
+                if (contentStore != null) { contentStore.close(); }
+                contentStore = createContentStore();
+            }
+            revisions = history != null && window.equals(history.get("window")) ? storedRevisions(history) : null;
+            if (revisions != null) {
+                loadedCount.set(revisions.size());
+                return;
+            }
+            if (deltaMode) {
+                revisions = streamRevisions(repository, filePath, startRevision, endRevision, limit);
+            } else {
+                List svnFileRevisions = new ArrayList(repository.getFileRevisions(filePath, null, startRevision, endRevision));
+                Collections.reverse(svnFileRevisions);
+                List svnFileRevisionsToDownload = limit > 0 && svnFileRevisions.size() > limit ? svnFileRevisions.subList(0, limit) : svnFileRevisions;
+                totalCount = svnFileRevisionsToDownload.size();
+                // fetchRevisions pools the session and releases it
+                SVNRepository session = repository;
+                repository = null;
+                revisions = fetchRevisions(svnFileRevisionsToDownload, history, session, url, username, password);
+                Collections.reverse(revisions);
+            }
+            if (sinceRevision > 0) {
+                removeRevisionsBefore(sinceRevision, revisions);
+            } else if (getRevisionStore() != null && ! isCancelled()) {
+                saveHistory(historyKey, window, revisions);
+            }
+        } finally {
+            if (repository != null) { releaseSession(repository); }
+        }
+    }
+
+    /**
+     * Removes revisions older than the given revision, such as the file's state at
+     * the start of the range, which the server may report although it was already loaded.
+     *
+     * @param sinceRevision  the oldest revision to keep
+     * @param revisions  the Revisions, oldest first
+     */
+    private void removeRevisionsBefore(long sinceRevision, List revisions) {
+        while (! revisions.isEmpty() && ((Long) ((Revision) revisions.get(0)).getRevisionNumber()).longValue() < sinceRevision) {
+            revisions.remove(0);
+        }
+    }
+
+    /**
+     * Builds the revisions entirely from the revision store.
+     *
+     * @param history  the stored history of the file
+     * @return  the Revisions, oldest first, or null if some contents are missing from the store
+     */
+    private List storedRevisions(History history) throws IOException {
+        List revisions = new ArrayList();
+        for (int i = 0; i < history.size(); i++) {
+            byte[] contents = getRevisionStore().getContents(history.getContentHash(i));
+            if (contents == null) { return null; }
+            CharsetDetector detector = CharsetDetector.detect(contents);
+            Revision revision = new Revision(Long.valueOf(history.getNumber(i)), history.getAuthor(i), history.getDate(i), history.getLogMessage(i), contentStore, contentStore.add(contents), detector.getEncoding(), classify(detector));
+            revision.setContentHash(checksum(contents));
+            revisions.add(revision);
+        }
+        return revisions;
+    }
+
+    /**
+     * Reads the contents of a file revision from the revision store, if they are there.
+     *
+     * @param history  the stored history of the file, or null if there is none
+     * @param r  the file revision
+     * @return  the contents, or null if they must be downloaded
+     */
+    private FileContents storedContents(History history, SVNFileRevision r) throws IOException {
+        if (history == null) { return null; }
+        byte[] contents = getRevisionStore().getContents(history.getContentHash(String.valueOf(r.getRevision())));
+        if (contents == null) { return null; }
+        recordContents(r, contents);
+        return new FileContents(r, contents, CharsetDetector.detect(contents), null);
+    }
+
+    /**
+     * Records the loaded revisions in the revision store.
+     *
+     * @param historyKey  the repository UUID and the file's path within the repository
+     * @param window  the revisions reported by the log, which identify the state of the history
+     * @param revisions  the loaded Revisions, oldest first
+     */
+    private void saveHistory(String historyKey, String window, List revisions) throws IOException {
+        History history = new History();
+        history.set("window", window);
+        for (Iterator i = revisions.iterator(); i.hasNext(); ) {
+            Revision revision = (Revision) i.next();
+            history.add(revision, (String) contentHashes.get(revision.getRevisionNumber()));
+        }
+        getRevisionStore().putHistory(historyKey, history);
+    }
+
+    /**
+     * Lists the newest limit revisions in which the file changed, using a
+     * path-restricted log. The oldest of them is where the file-revisions request
+     * starts, so that it need only cover that window instead of the file's entire
+     * history; their count lets progress be reported before any contents arrive.
+     *
+     * @param repository  the repository session
+     * @param filePath  path of the file, relative to the session location
+     * @param sinceRevision  the oldest revision to consider
+     * @param endRevision  the newest revision to consider
+     * @param limit  maximum number of revisions to download, or 0 for no limit
+     * @return  the revision numbers, as Longs, newest first
+     */
+    private List logRevisions(SVNRepository repository, String filePath, long sinceRevision, long endRevision, int limit) throws SVNException {
+        final List logRevisions = new ArrayList();
+        repository.log(new String[] { filePath }, endRevision, sinceRevision, false, false, Math.max(limit, 0), new ISVNLogEntryHandler() {
+            public void handleLogEntry(SVNLogEntry logEntry) {
+                logRevisions.add(new Long(logEntry.getRevision()));
+            }
+        });
+        return logRevisions;
+    }
+
+    /**
+     * Downloads the contents of the given file revisions, spreading the requests
+     * across a pool of repository sessions. Each session serves one request at a time
+     * and is reused for the next, so the number of connections stays bounded by
+     * {@link #getConcurrency()}. The requests run on the shared svn-fetch pool of the
+     * {@link LoadScheduler}, one worker per session. Each revision is added to the
+     * content store and published as soon as it and all newer revisions have arrived,
+     * so that the store receives them in order however the downloads finish.
+     *
+     * @param svnFileRevisions  the SVNFileRevisions to download, newest first
+     * @param history  the stored history of the file, whose contents need not be downloaded again; or null
+     * @param repository  an open session, which becomes part of the pool and is released
+     *          with it, even if this method throws
+     * @param url  URL of the directory containing the file
      * @param username  username, or null for anonymous
      * @param password  password, or null for anonymous
-     * @param limit  maximum number of revisions to download
-     * @param afterLoad  operation to run after the load finishes
+     * @return  the Revisions, in the same order as svnFileRevisions; shorter if the load was cancelled
      */
-    protected void loadRevisionsProper(String filePathOrUrl, int limit) throws Exception {
+    private List fetchRevisions(List svnFileRevisions, final History history, SVNRepository repository, String url, String username, String password) throws Exception {
+        int sessionCount = Math.max(1, Math.min(getConcurrency(), svnFileRevisions.size()));
+        final BlockingQueue sessions = new ArrayBlockingQueue(sessionCount);
+        final BlockingQueue tasks = new LinkedBlockingQueue();
+        List workers = new ArrayList();
         try {
-        	String username = getUsername();
-        	String password = getPassword();
-        	
-            loadedCount = totalCount = 0;
-            SVNURL fullUrl = svnUrl(filePathOrUrl, username, password);
-            String url = fullUrl.removePathTail().toString();
-            String filePath = fullUrl.getPath().replaceAll(".*/", "");
-            SVNRepository repository = repository(url, username, password);
-            List svnFileRevisions = new ArrayList(repository.getFileRevisions(filePath, null, 0, repository.getLatestRevision()));
-            Collections.reverse(svnFileRevisions);
-            List svnFileRevisionsToDownload = svnFileRevisions.size() > limit ? svnFileRevisions.subList(0, limit) : svnFileRevisions;
-            totalCount = svnFileRevisionsToDownload.size();
-            revisions = new ArrayList();
-            for (Iterator i = svnFileRevisionsToDownload.iterator(); i.hasNext(); ) {
-                SVNFileRevision r = (SVNFileRevision) i.next();
-                if (isCancelled()) { break; }
-                SVNProperties p = r.getRevisionProperties();
-                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-                repository.getFile(r.getPath(), r.getRevision(), null, outputStream);                
-                String encoding = determineEncoding(outputStream.toByteArray());                
-                String content = encoding == null ? outputStream.toString() : outputStream.toString(encoding); 
-                revisions.add(new Revision(r.getRevision(), p.getStringValue(SVNRevisionProperty.AUTHOR), formatDate(p.getStringValue(SVNRevisionProperty.DATE)), p.getStringValue(SVNRevisionProperty.LOG), content));
-                loadedCount++;
+            sessions.add(repository);
+            for (int i = 1; i < sessionCount; i++) {
+                sessions.add(repository(url, username, password));
+            }
+            List futures = new ArrayList();
+            for (Iterator i = svnFileRevisions.iterator(); i.hasNext(); ) {
+                final SVNFileRevision r = (SVNFileRevision) i.next();
+                FutureTask task = new FutureTask(new Callable() {
+                    public Object call() throws Exception {
+                        if (isCancelled()) { return null; }
+                        FileContents contents = storedContents(history, r);
+                        if (contents == null) {
+                            SVNRepository session = (SVNRepository) sessions.take();
+                            try {
+                                contents = fetchContents(session, r);
+                            } finally {
+                                sessions.put(session);
+                            }
+                        }
+                        loadedCount.incrementAndGet();
+                        return contents;
+                    }
+                });
+                futures.add(task);
+                tasks.add(task);
+            }
+            for (int i = 0; i < sessionCount; i++) {
+                workers.add(LoadScheduler.getInstance().submit(FETCH_POOL, new Runnable() {
+                    public void run() {
+                        for (Runnable task = (Runnable) tasks.poll(); task != null; task = (Runnable) tasks.poll()) {
+                            task.run();
+                        }
+                    }
+                }));
             }
-            Collections.reverse(revisions);
+            List revisions = new ArrayList();
+            for (Iterator i = futures.iterator(); i.hasNext(); ) {
+                FileContents contents;
+                try {
+                    contents = (FileContents) result((Future) i.next());
+                } catch (SVNException e) {
+                    // Cancelling closes the sessions under the requests in flight
+                    if (isCancelled()) { break; }
+                    throw e;
+                }
+                if (contents == null) { break; }
+                Revision revision = createRevision(contents.revision, contents.bytes, contents.detector, contents.checksum);
+                revisions.add(revision);
+                publish(revision);
+            }
+            return revisions;
         } finally {
-            setLoading(false);
+            tasks.clear();
+            for (Iterator i = workers.iterator(); i.hasNext(); ) {
+                LoadScheduler.await((Future) i.next());
+            }
+            for (Iterator i = sessions.iterator(); i.hasNext(); ) {
+                releaseSession((SVNRepository) i.next());
+            }
         }
     }
 
+    /**
+     * Downloads the contents of a single file revision.
+     *
+     * @param repository  the session to use; not shared with other threads during the call
+     * @param r  the file revision to download
+     * @return  the downloaded contents
+     */
+    private FileContents fetchContents(SVNRepository repository, SVNFileRevision r) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CharsetDetector detector = new CharsetDetector(outputStream);
+        SVNProperties properties = new SVNProperties();
+        repository.getFile(r.getPath(), r.getRevision(), properties, detector);
+        byte[] contents = outputStream.toByteArray();
+        recordContents(r, contents);
+        return new FileContents(r, contents, detector, properties.getStringValue(SVNProperty.CHECKSUM));
+    }
+
+    /**
+     * Rebuilds the revisions of the file in a single getFileRevisions call, applying
+     * each svndiff delta to the previous revision's text instead of downloading every
+     * full text separately.
+     *
+     * @param repository  the repository session
+     * @param filePath  path of the file, relative to the session location
+     * @param startRevision  the oldest revision to request
+     * @param endRevision  the newest revision to request
+     * @param limit  maximum number of revisions to keep, or 0 for no limit; older ones are discarded as newer ones arrive
+     * @return  the Revisions, oldest first
+     */
+    private List streamRevisions(SVNRepository repository, String filePath, long startRevision, long endRevision, int limit) throws Exception {
+        RevisionDeltaHandler handler = new RevisionDeltaHandler(limit);
+        try {
+            repository.getFileRevisions(filePath, startRevision, endRevision, handler);
+        } catch (SVNException e) {
+            // Keep the revisions rebuilt so far if the load was cancelled
+            if (! isCancelled()) { throw e; }
+        }
+        return new ArrayList(handler.getRevisions());
+    }
+
+    /**
+     * Saves the contents of a file revision in the revision store, if there is one.
+     *
+     * @param r  the file revision
+     * @param contents  the bytes of the file at that revision
+     */
+    private void recordContents(SVNFileRevision r, byte[] contents) throws IOException {
+        if (getRevisionStore() != null) { contentHashes.put(new Long(r.getRevision()), getRevisionStore().putContents(contents)); }
+    }
+
+    /**
+     * Creates a Revision from the downloaded contents of a file revision, adding the
+     * contents to the content store. Must be called in the order of the history.
+     *
+     * @param r  the file revision
+     * @param contents  the bytes of the file at that revision
+     * @param detector  a CharsetDetector that has seen the bytes
+     * @param checksum  the MD5 checksum of the bytes reported by the server, or null to compute it
+     * @return  the corresponding Revision
+     */
+    private Revision createRevision(SVNFileRevision r, byte[] contents, CharsetDetector detector, String checksum) throws IOException {
+        SVNProperties p = r.getRevisionProperties();
+        Revision revision = new Revision(r.getRevision(), p.getStringValue(SVNRevisionProperty.AUTHOR), formatDate(p.getStringValue(SVNRevisionProperty.DATE)), p.getStringValue(SVNRevisionProperty.LOG), contentStore, contentStore.add(contents), detector.getEncoding(), classify(detector));
+        revision.setContentHash(checksum == null ? checksum(contents) : checksum);
+        return revision;
+    }
+
+    /**
+     * Computes the checksum that Subversion keeps for a file's text, for revisions
+     * whose checksum did not come from the server.
+     *
+     * @param contents  the bytes of the file
+     * @return  the MD5 digest, in hexadecimal
+     */
+    private static String checksum(byte[] contents) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            digest.update(contents);
+            return SVNFileUtil.toHexDigest(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The contents of a file revision, downloaded or read from the revision store,
+     * waiting to be added to the content store in turn.
+     */
+    private static class FileContents {
+
+        /** The file revision */
+        private SVNFileRevision revision;
+
+        /** The bytes of the file at that revision */
+        private byte[] bytes;
+
+        /** A CharsetDetector that has seen the bytes */
+        private CharsetDetector detector;
+
+        /** The MD5 checksum of the bytes reported by the server, or null */
+        private String checksum;
+
+        /**
+         * Creates a new FileContents.
+         *
+         * @param revision  the file revision
+         * @param bytes  the bytes of the file at that revision
+         * @param detector  a CharsetDetector that has seen the bytes
+         * @param checksum  the MD5 checksum of the bytes reported by the server, or null to compute it
+         */
+        public FileContents(SVNFileRevision revision, byte[] bytes, CharsetDetector detector, String checksum) {
+            this.revision = revision;
+            this.bytes = bytes;
+            this.detector = detector;
+            this.checksum = checksum;
+        }
+    }
+
+    /**
+     * Rebuilds each revision's contents from the deltas that getFileRevisions streams.
+     * The first delta is against the empty file; each later one is against the
+     * previous revision, which is kept as raw bytes until the next delta arrives.
+     */
+    private class RevisionDeltaHandler implements ISVNFileRevisionHandler {
+
+        /** Applies svndiff windows to the previous contents. */
+        private SVNDeltaProcessor deltaProcessor = new SVNDeltaProcessor();
+
+        /** Maximum number of revisions to keep */
+        private int limit;
+
+        /** The most recent Revisions rebuilt so far, oldest first */
+        private LinkedList revisions = new LinkedList();
+
+        /** The file revision currently being received */
+        private SVNFileRevision fileRevision;
+
+        /** The contents of the most recently completed revision */
+        private byte[] contents = new byte[0];
+
+        /** Receives the contents of the revision currently being rebuilt */
+        private ByteArrayOutputStream target;
+
+        /** Determines the encoding of the contents as they are rebuilt */
+        private CharsetDetector detector = new CharsetDetector();
+
+        /** The MD5 checksum of the contents of the most recently completed revision */
+        private String checksum = checksum(contents);
+
+        /**
+         * Creates a new RevisionDeltaHandler.
+         *
+         * @param limit  maximum number of revisions to keep, or 0 for no limit
+         */
+        public RevisionDeltaHandler(int limit) {
+            this.limit = limit;
+        }
+
+        public void openRevision(SVNFileRevision fileRevision) throws SVNException {
+            if (isCancelled()) { throw new SVNCancelException(); }
+            this.fileRevision = fileRevision;
+        }
+
+        public void applyTextDelta(String path, String baseChecksum) throws SVNException {
+            target = new ByteArrayOutputStream();
+            detector = new CharsetDetector(target);
+            deltaProcessor.applyTextDelta(new ByteArrayInputStream(contents), detector, true);
+        }
+
+        public OutputStream textDeltaChunk(String path, SVNDiffWindow diffWindow) throws SVNException {
+            return deltaProcessor.textDeltaChunk(diffWindow);
+        }
+
+        public void textDeltaEnd(String path) throws SVNException {
+            checksum = deltaProcessor.textDeltaEnd();
+            contents = target.toByteArray();
+            target = null;
+        }
+
+        public void closeRevision(String token) throws SVNException {
+            // A revision without a text delta (e.g., a property change) keeps the previous contents
+            try {
+                recordContents(fileRevision, contents);
+                revisions.add(createRevision(fileRevision, contents, detector, checksum));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            if (limit > 0 && revisions.size() > limit) { revisions.removeFirst(); }
+            loadedCount.incrementAndGet();
+        }
+
+        /**
+         * Returns the rebuilt revisions.
+         *
+         * @return  at most limit Revisions, oldest first
+         */
+        public List getRevisions() {
+            return revisions;
+        }
+    }
+
+    /**
+     * Waits for the task to finish, rethrowing any exception it raised.
+     *
+     * @param future  the pending result
+     * @return  the value computed by the task
+     */
+    private Object result(Future future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) { throw (Exception) e.getCause(); }
+            throw e;
+        }
+    }
+
+    /**
+     * Sets whether to rebuild revisions from the deltas streamed by the server
+     * rather than download each revision's full text.
+     *
+     * @param deltaMode  true to apply deltas; false to fetch full texts over the session pool
+     */
+    public void setDeltaMode(boolean deltaMode) {
+        this.deltaMode = deltaMode;
+    }
+
     /**
      * Normalizes the given file path or URL.
      *
@@ -112,7 +608,7 @@ public class SvnLoader extends ScmLoader {
 	}
 
     /**
-     * Returns the specified Subversion repository
+     * Leases a session for the specified Subversion repository from the session pool.
      *
      * @param url  URL of the Subversion repository or one of its files
      * @param username  username, or null for anonymous
@@ -120,22 +616,42 @@ public class SvnLoader extends ScmLoader {
      * @return  the repository handle
      */
     private SVNRepository repository(String url, String username, String password) throws Exception {
-        DAVRepositoryFactory.setup();
-        SVNRepositoryFactoryImpl.setup(); /* svn:// and svn+xxx:// */
-        FSRepositoryFactory.setup(); /* file:// */
-        SVNRepository repository = SVNRepositoryFactory.create(SVNURL.parseURIEncoded(url));
-        repository.setAuthenticationManager(SVNWCUtil.createDefaultAuthenticationManager(username, password));
-        repository.setTunnelProvider(SVNWCUtil.createDefaultOptions(true));
+        SVNRepository repository = SvnSessionPool.getInstance().lease(url, username, password);
+        repository.setCanceller(canceller);
+        openSessions.add(repository);
         return repository;
     }
 
+    /**
+     * Returns a session leased by {@link #repository(String, String, String)} to the
+     * session pool, which keeps it open for the next load.
+     *
+     * @param repository  the session to release
+     */
+    private void releaseSession(SVNRepository repository) {
+        openSessions.remove(repository);
+        SvnSessionPool.getInstance().release(repository);
+    }
+
+    /**
+     * Closes the connections of the sessions of the current job, so that requests
+     * waiting on the network fail at once instead of running to completion. The
+     * sessions reconnect when they are next leased.
+     */
+    protected void cancelHook() {
+        SVNRepository[] sessions = (SVNRepository[]) openSessions.toArray(new SVNRepository[0]);
+        for (int i = 0; i < sessions.length; i++) {
+            sessions[i].closeSession();
+        }
+    }
+
     /**
      * Returns the number of revisions downloaded so far.
      *
      * @return  the number of revisions loaded in the current job.
      */
     public int getLoadedCount() {
-        return loadedCount;
+        return loadedCount.get();
     }
 
     /**
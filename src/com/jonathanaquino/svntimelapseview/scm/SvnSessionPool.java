@@ -0,0 +1,218 @@
+package com.jonathanaquino.svntimelapseview.scm;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.tmatesoft.svn.core.ISVNCanceller;
+import org.tmatesoft.svn.core.SVNException;
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.io.dav.DAVRepositoryFactory;
+import org.tmatesoft.svn.core.internal.io.fs.FSRepositoryFactory;
+import org.tmatesoft.svn.core.internal.io.svn.SVNRepositoryFactoryImpl;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.wc.SVNWCUtil;
+
+/**
+ * Keeps Subversion sessions open between uses, so that loads and repository browsing
+ * do not pay for a new connection, TLS handshake and authentication each time.
+ * Sessions are leased to one user at a time and are keyed by server and credentials;
+ * a returned session is pointed at the next URL leased, preferring one that is
+ * already connected to the same repository root. Sessions idle for longer than the
+ * idle timeout are closed.
+ */
+public class SvnSessionPool {
+
+	/** The pool shared by the loaders and the repository browser */
+	private static final SvnSessionPool instance = new SvnSessionPool(60000);
+
+	/** Sessions not currently leased, keyed by server and credentials, most recently returned last */
+	private final Map<String, LinkedList<IdleSession>> idleSessions = new HashMap<String, LinkedList<IdleSession>>();
+
+	/** The keys of the sessions currently leased */
+	private final Map<SVNRepository, String> leasedSessions = new IdentityHashMap<SVNRepository, String>();
+
+	/** Number of milliseconds after which an unused session is closed */
+	private final long idleTimeout;
+
+	/** Closes idle sessions periodically */
+	private final ScheduledExecutorService sweeper;
+
+	static {
+		DAVRepositoryFactory.setup();
+		SVNRepositoryFactoryImpl.setup(); /* svn:// and svn+xxx:// */
+		FSRepositoryFactory.setup(); /* file:// */
+	}
+
+	/**
+	 * Returns the pool shared by the loaders and the repository browser.
+	 *
+	 * @return  the session pool
+	 */
+	public static SvnSessionPool getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Creates a new SvnSessionPool.
+	 *
+	 * @param idleTimeout  number of milliseconds after which an unused session is closed
+	 */
+	SvnSessionPool(long idleTimeout) {
+		this.idleTimeout = idleTimeout;
+		sweeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "svn-session-sweeper");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		sweeper.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				closeIdleSessions(System.currentTimeMillis());
+			}
+		}, idleTimeout, Math.max(1, idleTimeout / 2), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Leases a session for the given URL, reusing an idle one if possible. Return
+	 * the session with release when done with it.
+	 *
+	 * @param url  URL of a directory in the Subversion repository
+	 * @param username  username, or null for anonymous
+	 * @param password  password, or null for anonymous
+	 * @return  a session whose location is the URL
+	 */
+	public SVNRepository lease(String url, String username, String password) throws SVNException {
+		SVNURL location = SVNURL.parseURIEncoded(url);
+		String key = key(location, username, password);
+		SVNRepository repository = takeIdleSession(key, location);
+		if (repository == null) {
+			repository = SVNRepositoryFactory.create(location);
+			repository.setAuthenticationManager(SVNWCUtil.createDefaultAuthenticationManager(username, password));
+			repository.setTunnelProvider(SVNWCUtil.createDefaultOptions(true));
+		} else {
+			repository.setLocation(location, false);
+		}
+		synchronized (this) {
+			leasedSessions.put(repository, key);
+		}
+		return repository;
+	}
+
+	/**
+	 * Returns a leased session to the pool, keeping its connection open for the next
+	 * lease. A session closed while leased, e.g., to abort a request, reconnects
+	 * when it is next used.
+	 *
+	 * @param repository  a session returned by lease
+	 */
+	public void release(SVNRepository repository) {
+		repository.setCanceller(ISVNCanceller.NULL);
+		synchronized (this) {
+			String key = leasedSessions.remove(repository);
+			if (key == null) { return; }
+			LinkedList<IdleSession> sessions = idleSessions.get(key);
+			if (sessions == null) {
+				sessions = new LinkedList<IdleSession>();
+				idleSessions.put(key, sessions);
+			}
+			sessions.addLast(new IdleSession(repository, System.currentTimeMillis()));
+		}
+	}
+
+	/**
+	 * Removes an idle session from the pool, preferring one already connected to the
+	 * repository containing the location.
+	 *
+	 * @param key  identifies the server and credentials
+	 * @param location  the URL that the session will be used for
+	 * @return  the session, or null if there is no idle session for the key
+	 */
+	private synchronized SVNRepository takeIdleSession(String key, SVNURL location) {
+		LinkedList<IdleSession> sessions = idleSessions.get(key);
+		if (sessions == null || sessions.isEmpty()) { return null; }
+		String url = location.toString();
+		for (Iterator<IdleSession> i = sessions.descendingIterator(); i.hasNext(); ) {
+			IdleSession session = i.next();
+			SVNURL root;
+			try {
+				// The root cached by the session, without asking the server
+				root = session.repository.getRepositoryRoot(false);
+			} catch (SVNException e) {
+				root = null;
+			}
+			if (root != null && url.startsWith(root.toString())) {
+				i.remove();
+				return session.repository;
+			}
+		}
+		return sessions.removeLast().repository;
+	}
+
+	/**
+	 * Closes the sessions that have been idle for longer than the idle timeout.
+	 *
+	 * @param now  the current time, in milliseconds
+	 * @return  the number of sessions closed
+	 */
+	int closeIdleSessions(long now) {
+		LinkedList<SVNRepository> expired = new LinkedList<SVNRepository>();
+		synchronized (this) {
+			for (Iterator<LinkedList<IdleSession>> i = idleSessions.values().iterator(); i.hasNext(); ) {
+				LinkedList<IdleSession> sessions = i.next();
+				while (! sessions.isEmpty() && now - sessions.getFirst().idleSince >= idleTimeout) {
+					expired.add(sessions.removeFirst().repository);
+				}
+				if (sessions.isEmpty()) { i.remove(); }
+			}
+		}
+		for (SVNRepository repository : expired) {
+			repository.closeSession();
+		}
+		return expired.size();
+	}
+
+	/**
+	 * Returns the number of sessions waiting to be leased.
+	 *
+	 * @return  the number of idle sessions
+	 */
+	synchronized int getIdleCount() {
+		int count = 0;
+		for (LinkedList<IdleSession> sessions : idleSessions.values()) { count += sessions.size(); }
+		return count;
+	}
+
+	/**
+	 * Returns the key under which sessions for the location and credentials are kept.
+	 *
+	 * @param location  a URL in the repository
+	 * @param username  username, or null for anonymous
+	 * @param password  password, or null for anonymous
+	 * @return  a string identifying the server and credentials
+	 */
+	private static String key(SVNURL location, String username, String password) {
+		return location.getProtocol() + "://" + location.getHost() + ":" + location.getPort() + "\n" + username + "\n" + password;
+	}
+
+	/**
+	 * A session waiting to be leased.
+	 */
+	private static class IdleSession {
+		final SVNRepository repository;
+		final long idleSince;
+
+		IdleSession(SVNRepository repository, long idleSince) {
+			this.repository = repository;
+			this.idleSince = idleSince;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package com.jonathanaquino.svntimelapseview.storage;
+
+import java.io.IOException;
+
+/**
+ * Holds the contents of the revisions of a file, which are added once and read back
+ * by index. The revisions are added one at a time in the order of the history, oldest
+ * or newest first, as a store may keep each as a delta against the one added before it.
+ */
+public interface ContentStore {
+
+    /**
+     * Adds the contents of a revision.
+     *
+     * @param contents  the bytes of the file
+     * @return  the index with which to retrieve the contents
+     */
+    public int add(byte[] contents) throws IOException;
+
+    /**
+     * Returns the contents of a revision.
+     *
+     * @param index  the index returned by add
+     * @return  the bytes of the file
+     */
+    public byte[] get(int index) throws IOException;
+
+    /**
+     * Returns the number of revisions in the store.
+     *
+     * @return  the number of revisions added
+     */
+    public int size();
+
+    /**
+     * Releases the resources held by the store, such as open files. The contents
+     * cannot be read once the store is closed.
+     */
+    public void close() throws IOException;
+
+}
@@ -0,0 +1,336 @@
+package com.jonathanaquino.svntimelapseview.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.jonathanaquino.svntimelapseview.diff.Hunk;
+import com.jonathanaquino.svntimelapseview.diff.MyersDiff;
+
+/**
+ * An in-memory store of the contents of a file's revisions, which keeps every
+ * keyframeInterval-th revision in full and each of the others as a line-level delta
+ * against the revision added just before it. Neighbouring revisions usually share
+ * most of their lines, so a long history takes a fraction of the memory of one copy
+ * per revision; any revision is rebuilt on demand from the keyframe before it.
+ * The contents are kept as raw bytes, so that they can be decoded only when needed.
+ * Each distinct line is given an int id, and the deltas are computed by MyersDiff
+ * over the ids; the lines are interned by their bytes rather than through a
+ * LineDictionary, which would need them decoded and stripped of their terminators.
+ */
+public class DeltaStore implements ContentStore {
+
+    /** The default number of revisions per keyframe */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 32;
+
+    /** The number of revisions per keyframe */
+    private int keyframeInterval;
+
+    /** The entries, in the order added: a byte[] for a keyframe, a Delta otherwise */
+    private List entries = new ArrayList();
+
+    /** The approximate number of bytes of heap taken by the entries */
+    private long heapSize = 0;
+
+    /** The ids of the distinct lines added so far, keyed by Line */
+    private Map lineIds = new HashMap();
+
+    /** The distinct lines added so far, indexed by id */
+    private List lines = new ArrayList();
+
+    /** The line ids of the revision added last, against which the next delta is computed */
+    private int[] lastLineIds = new int[0];
+
+    /** The index of the revision rebuilt last, or -1 */
+    private int cachedIndex = -1;
+
+    /** The lines of the revision rebuilt last, from which the next one can continue */
+    private Line[] cachedLines;
+
+    /**
+     * Creates a new DeltaStore with the default keyframe interval.
+     */
+    public DeltaStore() {
+        this(DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Creates a new DeltaStore.
+     *
+     * @param keyframeInterval  the number of revisions per keyframe; higher values save
+     *          memory but make rebuilding slower
+     */
+    public DeltaStore(int keyframeInterval) {
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+    }
+
+    /**
+     * Adds the contents of a revision.
+     *
+     * @param contents  the bytes of the file
+     * @return  the index with which to retrieve the contents
+     */
+    public synchronized int add(byte[] contents) {
+        Line[] lines = split(contents);
+        int[] ids = intern(lines);
+        int index = entries.size();
+        if (index % keyframeInterval == 0) {
+            entries.add(contents);
+            heapSize += heapSize(contents);
+        } else {
+            Delta delta = Delta.create(lastLineIds, ids, lines);
+            entries.add(delta);
+            heapSize += delta.heapSize();
+        }
+        lastLineIds = ids;
+        return index;
+    }
+
+    /**
+     * Returns the id of each line, assigning ids to the lines not seen before. Each
+     * line is replaced by the first Line with the same bytes, so that the deltas
+     * share a single copy of it.
+     *
+     * @param lines  the lines of a revision; replaced by their interned copies
+     * @return  the id of each line
+     */
+    private int[] intern(Line[] lines) {
+        int[] ids = new int[lines.length];
+        for (int i = 0; i < lines.length; i++) {
+            Integer id = (Integer) lineIds.get(lines[i]);
+            if (id == null) {
+                id = new Integer(this.lines.size());
+                lineIds.put(lines[i], id);
+                this.lines.add(lines[i]);
+                heapSize += 64 + heapSize(lines[i].bytes);
+            }
+            lines[i] = (Line) this.lines.get(id.intValue());
+            ids[i] = id.intValue();
+        }
+        return ids;
+    }
+
+    /**
+     * Returns the contents of a revision, applying the deltas since the keyframe before it.
+     *
+     * @param index  the index returned by add
+     * @return  the bytes of the file
+     */
+    public synchronized byte[] get(int index) {
+        Object entry = entries.get(index);
+        if (entry instanceof byte[]) { return (byte[]) entry; }
+        int keyframe = index - index % keyframeInterval;
+        Line[] lines;
+        int i;
+        if (cachedIndex >= keyframe && cachedIndex <= index) {
+            lines = cachedLines;
+            i = cachedIndex + 1;
+        } else {
+            lines = split((byte[]) entries.get(keyframe));
+            i = keyframe + 1;
+        }
+        for (; i <= index; i++) {
+            lines = ((Delta) entries.get(i)).apply(lines);
+        }
+        cachedIndex = index;
+        cachedLines = lines;
+        return join(lines);
+    }
+
+    /**
+     * Returns the number of revisions in the store.
+     *
+     * @return  the number of revisions added
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Does nothing, as the contents are kept on the heap.
+     */
+    public void close() {
+    }
+
+    /**
+     * Returns the approximate amount of heap taken by the revisions in the store.
+     *
+     * @return  an estimate of the number of bytes used by the keyframes and deltas
+     */
+    public synchronized long getHeapSize() {
+        return heapSize;
+    }
+
+    /**
+     * Returns the approximate amount of heap taken by a byte array.
+     *
+     * @param bytes  the byte array
+     * @return  an estimate of the number of bytes used by the array
+     */
+    private static long heapSize(byte[] bytes) {
+        return 16 + bytes.length;
+    }
+
+    /**
+     * Splits the bytes into lines, each keeping its \n terminator, so that joining
+     * the lines gives back exactly the same bytes whatever the encoding.
+     *
+     * @param bytes  the bytes to split
+     * @return  the lines; the last has no terminator if the bytes do not end with one
+     */
+    static Line[] split(byte[] bytes) {
+        List lines = new ArrayList();
+        int start = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                lines.add(new Line(bytes, start, i + 1));
+                start = i + 1;
+            }
+        }
+        if (start < bytes.length) { lines.add(new Line(bytes, start, bytes.length)); }
+        return (Line[]) lines.toArray(new Line[lines.size()]);
+    }
+
+    /**
+     * Concatenates the lines.
+     *
+     * @param lines  lines that keep their terminators
+     * @return  the bytes
+     */
+    static byte[] join(Line[] lines) {
+        int length = 0;
+        for (int i = 0; i < lines.length; i++) { length += lines[i].bytes.length; }
+        byte[] bytes = new byte[length];
+        int position = 0;
+        for (int i = 0; i < lines.length; i++) {
+            System.arraycopy(lines[i].bytes, 0, bytes, position, lines[i].bytes.length);
+            position += lines[i].bytes.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * The bytes of a line, comparable by value.
+     */
+    static class Line {
+
+        /** The bytes of the line, including its terminator */
+        private byte[] bytes;
+
+        /** The hash code of the bytes */
+        private int hashCode;
+
+        /**
+         * Creates a new Line.
+         *
+         * @param bytes  the bytes of the file
+         * @param start  the position of the first byte of the line
+         * @param end  the position after the last byte of the line
+         */
+        public Line(byte[] bytes, int start, int end) {
+            this.bytes = new byte[end - start];
+            System.arraycopy(bytes, start, this.bytes, 0, this.bytes.length);
+            this.hashCode = Arrays.hashCode(this.bytes);
+        }
+
+        public boolean equals(Object other) {
+            return other instanceof Line && hashCode == ((Line) other).hashCode && Arrays.equals(bytes, ((Line) other).bytes);
+        }
+
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * The changes that turn one list of lines into another: runs of lines copied from
+     * the old list, interleaved with runs of new lines.
+     */
+    static class Delta {
+
+        /** Pairs of (start, count): a start of -1 inserts the next count added lines; otherwise count old lines are copied from start */
+        private int[] script;
+
+        /** The lines that are not in the old list */
+        private Line[] addedLines;
+
+        /** The number of lines in the new list */
+        private int lineCount;
+
+        private Delta(int[] script, Line[] addedLines, int lineCount) {
+            this.script = script;
+            this.addedLines = addedLines;
+            this.lineCount = lineCount;
+        }
+
+        /**
+         * Computes the delta between two lists of lines.
+         *
+         * @param oldIds  the line ids of the earlier revision
+         * @param newIds  the line ids of the later revision
+         * @param newLines  the lines of the later revision
+         * @return  the delta that turns the old lines into newLines
+         */
+        public static Delta create(int[] oldIds, int[] newIds, Line[] newLines) {
+            List script = new ArrayList();
+            List addedLines = new ArrayList();
+            int oldIndex = 0;
+            for (Iterator i = new MyersDiff().diff(oldIds, newIds).iterator(); i.hasNext(); ) {
+                Hunk hunk = (Hunk) i.next();
+                if (hunk.getLeftStart() > oldIndex) {
+                    script.add(new Integer(oldIndex));
+                    script.add(new Integer(hunk.getLeftStart() - oldIndex));
+                }
+                if (hunk.getRightEnd() > hunk.getRightStart()) {
+                    script.add(new Integer(-1));
+                    script.add(new Integer(hunk.getRightEnd() - hunk.getRightStart()));
+                    for (int j = hunk.getRightStart(); j < hunk.getRightEnd(); j++) { addedLines.add(newLines[j]); }
+                }
+                oldIndex = hunk.getLeftEnd();
+            }
+            if (oldIndex < oldIds.length) {
+                script.add(new Integer(oldIndex));
+                script.add(new Integer(oldIds.length - oldIndex));
+            }
+            int[] scriptArray = new int[script.size()];
+            for (int i = 0; i < scriptArray.length; i++) { scriptArray[i] = ((Integer) script.get(i)).intValue(); }
+            return new Delta(scriptArray, (Line[]) addedLines.toArray(new Line[addedLines.size()]), newLines.length);
+        }
+
+        /**
+         * Applies the delta.
+         *
+         * @param oldLines  the lines from which the delta was computed
+         * @return  the lines of the later revision
+         */
+        public Line[] apply(Line[] oldLines) {
+            Line[] newLines = new Line[lineCount];
+            int n = 0, added = 0;
+            for (int i = 0; i < script.length; i += 2) {
+                int start = script[i], count = script[i + 1];
+                if (start < 0) {
+                    System.arraycopy(addedLines, added, newLines, n, count);
+                    added += count;
+                } else {
+                    System.arraycopy(oldLines, start, newLines, n, count);
+                }
+                n += count;
+            }
+            return newLines;
+        }
+
+        /**
+         * Returns the approximate amount of heap taken by the delta.
+         *
+         * @return  an estimate of the number of bytes used by the script and the
+         *          references to the added lines, which are counted once when interned
+         */
+        public long heapSize() {
+            return 40 + 4L * script.length + 8L * addedLines.length;
+        }
+    }
+
+}
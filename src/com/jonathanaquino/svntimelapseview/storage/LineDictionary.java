@@ -0,0 +1,94 @@
+package com.jonathanaquino.svntimelapseview.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assigns each distinct line of a file's history a small integer id, so that a
+ * revision can be held as an array of ids. Lines shared by many revisions are then
+ * stored once, and comparing two lines is comparing two ints.
+ */
+public class LineDictionary {
+
+    /** The ids of the lines, keyed by line */
+    private Map ids = new HashMap();
+
+    /** The lines, indexed by id */
+    private List lines = new ArrayList();
+
+    /**
+     * Returns the ids of the lines of the given text, adding the lines not yet seen.
+     *
+     * @param contents  the contents of a text file
+     * @return  the id of each line, in order
+     */
+    public int[] intern(String contents) {
+        return intern(split(contents));
+    }
+
+    /**
+     * Returns the ids of the given lines, adding the lines not yet seen.
+     *
+     * @param contentLines  lines without their line terminators
+     * @return  the id of each line, in order
+     */
+    public synchronized int[] intern(String[] contentLines) {
+        int[] lineIds = new int[contentLines.length];
+        for (int i = 0; i < contentLines.length; i++) {
+            Integer id = (Integer) ids.get(contentLines[i]);
+            if (id == null) {
+                id = new Integer(lines.size());
+                ids.put(contentLines[i], id);
+                lines.add(contentLines[i]);
+            }
+            lineIds[i] = id.intValue();
+        }
+        return lineIds;
+    }
+
+    /**
+     * Returns the line with the given id.
+     *
+     * @param id  an id returned by intern
+     * @return  the line, without its line terminator
+     */
+    public synchronized String getLine(int id) {
+        return (String) lines.get(id);
+    }
+
+    /**
+     * Returns the lines with the given ids.
+     *
+     * @param lineIds  ids returned by intern
+     * @return  the lines, in order; equal lines are the same String object
+     */
+    public synchronized String[] getLines(int[] lineIds) {
+        String[] result = new String[lineIds.length];
+        for (int i = 0; i < lineIds.length; i++) {
+            result[i] = (String) lines.get(lineIds[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of distinct lines.
+     *
+     * @return  the number of ids assigned so far
+     */
+    public synchronized int size() {
+        return lines.size();
+    }
+
+    /**
+     * Splits the string at \r, \n, or \r\n.
+     *
+     * @param contents  the contents of a text file
+     * @return  the lines of the text file
+     */
+    public static String[] split(String contents) {
+        return contents.split("\r\n|\r|\n");
+    }
+
+}
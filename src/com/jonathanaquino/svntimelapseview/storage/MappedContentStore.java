@@ -0,0 +1,150 @@
+package com.jonathanaquino.svntimelapseview.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the contents of revisions outside the Java heap, in an append-only temporary
+ * file that is read back through memory-mapped segments, so the heap only ever holds
+ * the revisions being shown. The file is deleted when the store is closed, or else
+ * when the program exits.
+ */
+public class MappedContentStore implements ContentStore {
+
+    /** The default size of a mapped segment of the file */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /** The size of a mapped segment of the file; contents no longer than this never span two segments */
+    private int segmentSize;
+
+    /** The temporary file */
+    private File file;
+
+    /** The channel for writing and mapping the file, or null once the store is closed */
+    private FileChannel channel;
+
+    /** The position in the file of each revision's contents */
+    private List offsets = new ArrayList();
+
+    /** The number of bytes of each revision's contents */
+    private List lengths = new ArrayList();
+
+    /** The size of the file */
+    private long fileSize = 0;
+
+    /** The mapped segments, or null for those not mapped yet */
+    private List segments = new ArrayList();
+
+    /**
+     * Creates a new MappedContentStore.
+     *
+     * @param directory  the directory in which to create the temporary file, or null for the default
+     */
+    public MappedContentStore(File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates a new MappedContentStore.
+     *
+     * @param directory  the directory in which to create the temporary file, or null for the default
+     * @param segmentSize  the number of bytes to map at a time
+     */
+    MappedContentStore(File directory, int segmentSize) throws IOException {
+        if (directory != null) { directory.mkdirs(); }
+        this.segmentSize = segmentSize;
+        file = File.createTempFile("svn-time-lapse-view", ".revisions", directory);
+        file.deleteOnExit();
+        channel = new RandomAccessFile(file, "rw").getChannel();
+    }
+
+    public synchronized int add(byte[] bytes) throws IOException {
+        long offset = fileSize;
+        long segmentEnd = (offset / segmentSize + 1) * segmentSize;
+        if (bytes.length <= segmentSize && offset + bytes.length > segmentEnd) { offset = segmentEnd; }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        FileChannel channel = channel();
+        for (long position = offset; buffer.hasRemaining(); ) {
+            position += channel.write(buffer, position);
+        }
+        fileSize = offset + bytes.length;
+        offsets.add(new Long(offset));
+        lengths.add(new Integer(bytes.length));
+        return offsets.size() - 1;
+    }
+
+    public synchronized byte[] get(int index) throws IOException {
+        long offset = ((Long) offsets.get(index)).longValue();
+        int length = ((Integer) lengths.get(index)).intValue();
+        ByteBuffer buffer;
+        if (length > segmentSize) {
+            buffer = channel().map(FileChannel.MapMode.READ_ONLY, offset, length);
+        } else {
+            int segmentIndex = (int) (offset / segmentSize);
+            int position = (int) (offset % segmentSize);
+            buffer = segment(segmentIndex, position + length).duplicate();
+            buffer.position(position);
+            buffer.limit(position + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    public synchronized int size() {
+        return offsets.size();
+    }
+
+    /**
+     * Closes the file and deletes it. On some platforms a mapped file cannot be
+     * deleted until its mappings are garbage-collected; such a file is left to be
+     * deleted when the program exits.
+     */
+    public synchronized void close() throws IOException {
+        if (channel == null) { return; }
+        segments.clear();
+        try {
+            channel.close();
+        } finally {
+            channel = null;
+            file.delete();
+        }
+    }
+
+    /**
+     * Returns the channel for the file.
+     *
+     * @return  the open channel
+     * @throws IOException  if the store has been closed
+     */
+    private FileChannel channel() throws IOException {
+        if (channel == null) { throw new IOException("The content store has been closed"); }
+        return channel;
+    }
+
+    /**
+     * Returns the mapping of the given segment, mapping it again if the file has grown
+     * past the end of the mapping.
+     *
+     * @param segmentIndex  the number of the segment
+     * @param minimumSize  the number of bytes of the segment that must be mapped
+     * @return  the mapped segment
+     */
+    private MappedByteBuffer segment(int segmentIndex, int minimumSize) throws IOException {
+        while (segments.size() <= segmentIndex) { segments.add(null); }
+        MappedByteBuffer segment = (MappedByteBuffer) segments.get(segmentIndex);
+        if (segment == null || segment.capacity() < minimumSize) {
+            long start = (long) segmentIndex * segmentSize;
+            segment = channel().map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, fileSize - start));
+            segments.set(segmentIndex, segment);
+        }
+        return segment;
+    }
+
+}
@@ -0,0 +1,323 @@
+package com.jonathanaquino.svntimelapseview.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import com.jonathanaquino.svntimelapseview.Revision;
+
+/**
+ * A persistent, content-addressed store of revision histories, so that a file that
+ * was viewed recently can be reopened without downloading it again. File contents are
+ * stored once per SHA-1 hash, so revisions shared by branches and copies share storage;
+ * histories record the metadata of each revision plus the hash of its contents.
+ */
+public class RevisionStore {
+
+    /** The directory containing the store */
+    private File directory;
+
+    /**
+     * Creates a new RevisionStore.
+     *
+     * @param directory  the directory in which to keep the store; created if necessary
+     */
+    public RevisionStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Stores file contents, unless contents with the same hash are already stored.
+     *
+     * @param contents  the bytes of a file
+     * @return  the hash identifying the contents
+     */
+    public String putContents(byte[] contents) throws IOException {
+        String hash = hash(contents);
+        File file = contentsFile(hash);
+        if (! file.exists()) { write(file, contents); }
+        return hash;
+    }
+
+    /**
+     * Returns stored file contents.
+     *
+     * @param hash  the hash returned by putContents
+     * @return  the bytes of the file, or null if they are not in the store
+     */
+    public byte[] getContents(String hash) throws IOException {
+        if (hash == null) { return null; }
+        File file = contentsFile(hash);
+        return file.exists() ? read(file) : null;
+    }
+
+    /**
+     * Returns the stored history with the given key.
+     *
+     * @param key  identifies the repository and file, e.g., a repository UUID and path
+     * @return  the history, or null if none has been stored
+     */
+    public History getHistory(String key) throws IOException {
+        File file = historyFile(key);
+        if (! file.exists()) { return null; }
+        Properties properties = new Properties();
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            properties.load(inputStream);
+        } finally {
+            inputStream.close();
+        }
+        return key.equals(properties.getProperty("key")) ? new History(properties) : null;
+    }
+
+    /**
+     * Stores the history under the given key, replacing any previous history.
+     *
+     * @param key  identifies the repository and file, e.g., a repository UUID and path
+     * @param history  the revision metadata and content hashes
+     */
+    public void putHistory(String key, History history) throws IOException {
+        history.properties.setProperty("key", key);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        history.properties.store(outputStream, "Revision history for SVN Time Lapse View");
+        write(historyFile(key), outputStream.toByteArray());
+    }
+
+    /**
+     * Returns the file holding the contents with the given hash.
+     *
+     * @param hash  the hash of the contents
+     * @return  a file under the objects directory, fanned out by the first two characters
+     */
+    private File contentsFile(String hash) {
+        return new File(new File(new File(directory, "objects"), hash.substring(0, 2)), hash.substring(2));
+    }
+
+    /**
+     * Returns the file holding the history with the given key.
+     *
+     * @param key  identifies the repository and file
+     * @return  a file under the histories directory, named after the hash of the key
+     */
+    private File historyFile(String key) throws UnsupportedEncodingException {
+        return new File(new File(directory, "histories"), hash(key.getBytes("UTF-8")) + ".properties");
+    }
+
+    /**
+     * Writes the file through a temporary file, so that readers never see partial contents.
+     *
+     * @param file  the file to write
+     * @param contents  the bytes to write
+     */
+    private void write(File file, byte[] contents) throws IOException {
+        file.getParentFile().mkdirs();
+        File temporaryFile = File.createTempFile("tmp", null, file.getParentFile());
+        OutputStream outputStream = new FileOutputStream(temporaryFile);
+        try {
+            outputStream.write(contents);
+        } finally {
+            outputStream.close();
+        }
+        file.delete();
+        if (! temporaryFile.renameTo(file)) {
+            temporaryFile.delete();
+            throw new IOException("Could not write " + file);
+        }
+    }
+
+    /**
+     * Reads the entire file.
+     *
+     * @param file  the file to read
+     * @return  the bytes of the file
+     */
+    private byte[] read(File file) throws IOException {
+        byte[] contents = new byte[(int) file.length()];
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            for (int n = 0; n < contents.length; ) {
+                int count = inputStream.read(contents, n, contents.length - n);
+                if (count < 0) { throw new IOException("Unexpected end of " + file); }
+                n += count;
+            }
+        } finally {
+            inputStream.close();
+        }
+        return contents;
+    }
+
+    /**
+     * Returns the SHA-1 hash of the bytes.
+     *
+     * @param bytes  the data to hash
+     * @return  40 hexadecimal digits
+     */
+    public static String hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+            StringBuffer hash = new StringBuffer();
+            for (int i = 0; i < digest.length; i++) {
+                hash.append(Character.forDigit((digest[i] >> 4) & 0xF, 16));
+                hash.append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * The metadata of a list of revisions, plus the hash of each revision's contents
+     * and any values the loader needs to decide whether the history is still current.
+     */
+    public static class History {
+
+        /** The stored values */
+        private Properties properties;
+
+        /** Content hashes keyed by revision number, built on first use */
+        private Map contentHashes;
+
+        /**
+         * Creates an empty History.
+         */
+        public History() {
+            this(new Properties());
+        }
+
+        private History(Properties properties) {
+            this.properties = properties;
+        }
+
+        /**
+         * Returns a value describing the history as a whole.
+         *
+         * @param name  the name of the value, e.g., "head"
+         * @return  the value, or null if it has not been set
+         */
+        public String get(String name) {
+            return properties.getProperty("history." + name);
+        }
+
+        /**
+         * Sets a value describing the history as a whole.
+         *
+         * @param name  the name of the value, e.g., "head"
+         * @param value  the value
+         */
+        public void set(String name, String value) {
+            properties.setProperty("history." + name, value);
+        }
+
+        /**
+         * Appends a revision to the history.
+         *
+         * @param revision  the revision, whose metadata is recorded
+         * @param contentHash  the hash identifying the revision's contents
+         */
+        public void add(Revision revision, String contentHash) {
+            int i = size();
+            set(i, "number", String.valueOf(revision.getRevisionNumber()));
+            set(i, "author", revision.getAuthor());
+            set(i, "date", revision.getDate());
+            set(i, "logMessage", revision.getLogMessage());
+            set(i, "contents", contentHash);
+            properties.setProperty("size", String.valueOf(i + 1));
+            contentHashes = null;
+        }
+
+        /**
+         * Returns the number of revisions in the history.
+         *
+         * @return  the number of revisions added
+         */
+        public int size() {
+            return Integer.parseInt(properties.getProperty("size", "0"));
+        }
+
+        /**
+         * Returns the revision number of the ith revision.
+         *
+         * @param i  zero-based index
+         * @return  the revision number, as a string
+         */
+        public String getNumber(int i) {
+            return get(i, "number");
+        }
+
+        /**
+         * Returns the author of the ith revision.
+         *
+         * @param i  zero-based index
+         * @return  the username of the person who submitted the revision
+         */
+        public String getAuthor(int i) {
+            return get(i, "author");
+        }
+
+        /**
+         * Returns the date of the ith revision.
+         *
+         * @param i  zero-based index
+         * @return  the date, as displayed
+         */
+        public String getDate(int i) {
+            return get(i, "date");
+        }
+
+        /**
+         * Returns the log message of the ith revision.
+         *
+         * @param i  zero-based index
+         * @return  the message accompanying the submission
+         */
+        public String getLogMessage(int i) {
+            return get(i, "logMessage");
+        }
+
+        /**
+         * Returns the content hash of the ith revision.
+         *
+         * @param i  zero-based index
+         * @return  the hash identifying the revision's contents
+         */
+        public String getContentHash(int i) {
+            return get(i, "contents");
+        }
+
+        /**
+         * Returns the content hash of the revision with the given number.
+         *
+         * @param number  the revision number, as a string
+         * @return  the hash identifying the revision's contents, or null if the revision is not in the history
+         */
+        public synchronized String getContentHash(String number) {
+            if (contentHashes == null) {
+                contentHashes = new HashMap();
+                for (int i = 0; i < size(); i++) {
+                    contentHashes.put(getNumber(i), getContentHash(i));
+                }
+            }
+            return (String) contentHashes.get(number);
+        }
+
+        private String get(int i, String name) {
+            return properties.getProperty(i + "." + name);
+        }
+
+        private void set(int i, String name, String value) {
+            if (value != null) { properties.setProperty(i + "." + name, value); }
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+package com.jonathanaquino.svntimelapseview.storage;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Keeps the contents of revisions in a DeltaStore on the heap until it grows past a
+ * budget, and the contents of the revisions added after that in a MappedContentStore,
+ * so that the histories of very large files do not exhaust the heap.
+ */
+public class SpillingContentStore implements ContentStore {
+
+    /** The store for the revisions added before the budget was reached */
+    private DeltaStore heapStore = new DeltaStore();
+
+    /** The store for the revisions added after the budget was reached, or null until then */
+    private MappedContentStore mappedStore;
+
+    /** The number of bytes of heap the heapStore may take */
+    private long heapBudget;
+
+    /** The directory in which to create the file of the mappedStore, or null for the default */
+    private File directory;
+
+    /**
+     * Creates a new SpillingContentStore.
+     *
+     * @param heapBudget  the number of bytes of heap that the contents may take
+     * @param directory  the directory for the temporary file, or null for the default
+     */
+    public SpillingContentStore(long heapBudget, File directory) {
+        this.heapBudget = heapBudget;
+        this.directory = directory;
+    }
+
+    public synchronized int add(byte[] contents) throws IOException {
+        if (mappedStore == null && heapStore.getHeapSize() > heapBudget) { mappedStore = new MappedContentStore(directory); }
+        return mappedStore == null ? heapStore.add(contents) : heapStore.size() + mappedStore.add(contents);
+    }
+
+    public synchronized byte[] get(int index) throws IOException {
+        return index < heapStore.size() ? heapStore.get(index) : mappedStore.get(index - heapStore.size());
+    }
+
+    public synchronized int size() {
+        return heapStore.size() + (mappedStore == null ? 0 : mappedStore.size());
+    }
+
+    public synchronized void close() throws IOException {
+        heapStore.close();
+        if (mappedStore != null) { mappedStore.close(); }
+    }
+
+    /**
+     * Returns whether the store has started keeping contents outside the heap.
+     *
+     * @return  whether the heap budget has been exceeded
+     */
+    public synchronized boolean isSpilled() {
+        return mappedStore != null;
+    }
+
+}
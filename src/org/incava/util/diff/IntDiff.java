@@ -0,0 +1,416 @@
+package org.incava.util.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * A variant of <code>Diff</code> for arrays of ints, such as line hashes or
+ * line ids, which produces the same differences without boxing: the
+ * thresholds are kept in a sorted int array, searched with a binary search,
+ * the links in parallel int arrays, and the matches in an int array. Links
+ * are reference-counted, and the slots of those no longer reachable from a
+ * threshold are reused, as the garbage collector reclaims them for
+ * <code>Diff</code>.
+ */
+public class IntDiff
+{
+    /**
+     * The source array, AKA the "from" values.
+     */
+    protected int[] a;
+
+    /**
+     * The target array, AKA the "to" values.
+     */
+    protected int[] b;
+
+    /**
+     * The list of differences, as <code>Difference</code> instances.
+     */
+    protected List diffs = new ArrayList();
+
+    /**
+     * The pending, uncommitted difference.
+     */
+    private Difference pending;
+
+    /**
+     * The thresholds: the smallest b index ending a common subsequence of
+     * each length, in increasing order.
+     */
+    private int[] thresh;
+
+    /**
+     * The number of thresholds.
+     */
+    private int threshSize;
+
+    /**
+     * The link for each threshold, as an index into the link arrays.
+     */
+    private int[] threshLinks;
+
+    /**
+     * The previous link of each link, or -1.
+     */
+    private int[] linkPrevious;
+
+    /**
+     * The a index of each link.
+     */
+    private int[] linkA;
+
+    /**
+     * The b index of each link.
+     */
+    private int[] linkB;
+
+    /**
+     * The number of thresholds and links referring to each link.
+     */
+    private int[] linkRefs;
+
+    /**
+     * The number of link slots used, live or free.
+     */
+    private int linkCount;
+
+    /**
+     * The first free link slot, or -1; each free slot holds the next in
+     * <code>linkPrevious</code>.
+     */
+    private int freeLink;
+
+    /**
+     * Constructs the IntDiff object for the two arrays.
+     */
+    public IntDiff(int[] a, int[] b)
+    {
+        this.a = a;
+        this.b = b;
+    }
+
+    /**
+     * Runs diff and returns the results.
+     */
+    public List diff()
+    {
+        traverseSequences();
+
+        // add the last difference, if pending:
+        if (pending != null) {
+            diffs.add(pending);
+        }
+
+        return diffs;
+    }
+
+    /**
+     * Traverses the sequences, seeking the longest common subsequences,
+     * invoking the methods <code>onANotB</code>, <code>onBNotA</code> and
+     * <code>onMatch</code>.
+     */
+    protected void traverseSequences()
+    {
+        int[] matches = getLongestCommonSubsequences();
+
+        int lastA = a.length - 1;
+        int lastB = b.length - 1;
+        int bi = 0;
+        int ai;
+
+        int lastMatch = matches.length - 1;
+
+        for (ai = 0; ai <= lastMatch; ++ai) {
+            int bLine = matches[ai];
+
+            if (bLine == -1) {
+                onANotB(ai, bi);
+            }
+            else {
+                while (bi < bLine) {
+                    onBNotA(ai, bi++);
+                }
+
+                onMatch(ai, bi++);
+            }
+        }
+
+        while (ai <= lastA || bi <= lastB) {
+
+            // last A?
+            if (ai == lastA + 1 && bi <= lastB) {
+                while (bi <= lastB) {
+                    onBNotA(ai, bi++);
+                }
+            }
+
+            // last B?
+            if (bi == lastB + 1 && ai <= lastA) {
+                while (ai <= lastA) {
+                    onANotB(ai++, bi);
+                }
+            }
+
+            if (ai <= lastA) {
+                onANotB(ai++, bi);
+            }
+
+            if (bi <= lastB) {
+                onBNotA(ai, bi++);
+            }
+        }
+    }
+
+    /**
+     * Invoked for elements in <code>a</code> and not in <code>b</code>.
+     */
+    protected void onANotB(int ai, int bi)
+    {
+        if (pending == null) {
+            pending = new Difference(ai, ai, bi, -1);
+        }
+        else {
+            pending.setDeleted(ai);
+        }
+    }
+
+    /**
+     * Invoked for elements in <code>b</code> and not in <code>a</code>.
+     */
+    protected void onBNotA(int ai, int bi)
+    {
+        if (pending == null) {
+            pending = new Difference(ai, -1, bi, bi);
+        }
+        else {
+            pending.setAdded(bi);
+        }
+    }
+
+    /**
+     * Invoked for elements matching in <code>a</code> and <code>b</code>.
+     */
+    protected void onMatch(int ai, int bi)
+    {
+        if (pending != null) {
+            diffs.add(pending);
+            pending = null;
+        }
+    }
+
+    /**
+     * Returns the longest common subsequence, as the b index matching each a
+     * index up to the last one matched, or -1 for an a index not matched.
+     */
+    public int[] getLongestCommonSubsequences()
+    {
+        int aStart = 0;
+        int aEnd = a.length - 1;
+
+        int bStart = 0;
+        int bEnd = b.length - 1;
+
+        int[] matches = new int[a.length];
+        Arrays.fill(matches, -1);
+        int matchesLength = 0;
+
+        while (aStart <= aEnd && bStart <= bEnd && a[aStart] == b[bStart]) {
+            matches[aStart++] = bStart++;
+            matchesLength = aStart;
+        }
+
+        while (aStart <= aEnd && bStart <= bEnd && a[aEnd] == b[bEnd]) {
+            matchesLength = Math.max(matchesLength, aEnd + 1);
+            matches[aEnd--] = bEnd--;
+        }
+
+        // The positions of each value in b, chained from the last to the first
+        int capacity = Integer.highestOneBit(Math.max(1, bEnd - bStart + 1)) * 4;
+        int mask = capacity - 1;
+        int[] keys = new int[capacity];
+        int[] heads = new int[capacity];
+        Arrays.fill(heads, -1);
+        int[] previousPositions = new int[b.length];
+
+        for (int bi = bStart; bi <= bEnd; ++bi) {
+            int slot = slot(keys, heads, mask, b[bi]);
+            keys[slot] = b[bi];
+            previousPositions[bi] = heads[slot];
+            heads[slot] = bi;
+        }
+
+        thresh = new int[b.length + 1];
+        threshLinks = new int[thresh.length];
+        Arrays.fill(threshLinks, -1);
+        threshSize = 0;
+        linkPrevious = new int[16];
+        linkA = new int[16];
+        linkB = new int[16];
+        linkRefs = new int[16];
+        linkCount = 0;
+        freeLink = -1;
+
+        for (int i = aStart; i <= aEnd; ++i) {
+            int head = heads[slot(keys, heads, mask, a[i])];
+
+            int k = 0;
+            for (int j = head; j != -1; j = previousPositions[j]) {
+                k = insert(j, k);
+
+                if (k != -1) {
+                    addLink(k, k > 0 ? threshLinks[k - 1] : -1, i, j);
+                }
+            }
+        }
+
+        if (threshSize > 0) {
+            for (int link = threshLinks[threshSize - 1]; link != -1; link = linkPrevious[link]) {
+                matches[linkA[link]] = linkB[link];
+                matchesLength = Math.max(matchesLength, linkA[link] + 1);
+            }
+        }
+
+        if (matchesLength == matches.length) {
+            return matches;
+        }
+        int[] ary = new int[matchesLength];
+        System.arraycopy(matches, 0, ary, 0, matchesLength);
+        return ary;
+    }
+
+    /**
+     * Returns the slot of the hash table holding the value, or the empty slot
+     * where it belongs.
+     */
+    private static int slot(int[] keys, int[] heads, int mask, int value)
+    {
+        int hash = value * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (heads[slot] != -1 && keys[slot] != value) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Records the link for the threshold at index k, releasing the link it
+     * replaces.
+     */
+    private void addLink(int k, int previous, int ai, int bi)
+    {
+        int link = freeLink;
+        if (link != -1) {
+            freeLink = linkPrevious[link];
+        }
+        else {
+            if (linkCount == linkA.length) {
+                linkPrevious = grow(linkPrevious);
+                linkA = grow(linkA);
+                linkB = grow(linkB);
+                linkRefs = grow(linkRefs);
+            }
+            link = linkCount++;
+        }
+        linkPrevious[link] = previous;
+        linkA[link] = ai;
+        linkB[link] = bi;
+        linkRefs[link] = 1;
+        if (previous != -1) {
+            ++linkRefs[previous];
+        }
+        int replaced = threshLinks[k];
+        threshLinks[k] = link;
+        release(replaced);
+    }
+
+    /**
+     * Drops a reference to the link, freeing it and, in turn, the links
+     * before it that are no longer referred to.
+     */
+    private void release(int link)
+    {
+        while (link != -1 && --linkRefs[link] == 0) {
+            int previous = linkPrevious[link];
+            linkPrevious[link] = freeLink;
+            freeLink = link;
+            link = previous;
+        }
+    }
+
+    /**
+     * Returns the number of link slots allocated, live or free.
+     */
+    int getLinkCapacity()
+    {
+        return linkA.length;
+    }
+
+    /**
+     * Returns a copy of the array with twice the length.
+     */
+    private static int[] grow(int[] array)
+    {
+        int[] grown = new int[array.length * 2];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    /**
+     * Inserts the given value into the thresholds, as <code>Diff.insert</code>
+     * does, with -1 standing for null.
+     */
+    protected int insert(int j, int k)
+    {
+        if (k > 0 && k < threshSize && thresh[k] > j && thresh[k - 1] < j) {
+            thresh[k] = j;
+        }
+        else {
+            int hi = -1;
+
+            if (k > 0) {
+                hi = k;
+            }
+            else if (threshSize > 0) {
+                hi = threshSize - 1;
+            }
+
+            // off the end?
+            if (hi == -1 || j > thresh[threshSize - 1]) {
+                thresh[threshSize] = j;
+                threshSize++;
+                k = hi + 1;
+            }
+            else {
+                // binary search for insertion point:
+                int lo = 0;
+
+                while (lo <= hi) {
+                    int index = (hi + lo) / 2;
+                    int val   = thresh[index];
+
+                    if (j == val) {
+                        return -1;
+                    }
+                    else if (j > val) {
+                        lo = index + 1;
+                    }
+                    else {
+                        hi = index - 1;
+                    }
+                }
+
+                thresh[lo] = j;
+                if (lo == threshSize) {
+                    threshSize++;
+                }
+                k = lo;
+            }
+        }
+
+        return k;
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.jonathanaquino.svntimelapseview;
+
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.jonathanaquino.svntimelapseview.diff.Alignment;
+import com.jonathanaquino.svntimelapseview.diff.InlineDiff;
+import com.jonathanaquino.svntimelapseview.diff.MyersDiff;
+import com.jonathanaquino.svntimelapseview.helpers.DiffHelper;
+import com.jonathanaquino.svntimelapseview.storage.LineDictionary;
+
+public class DiffTest extends TestCase {
+
+    public void testRendersWhenRequested() {
+        Alignment alignment = new Alignment(new int[] {0, 1}, new int[] {0, -1}, 2);
+        Diff diff = DiffHelper.diff(alignment, new String[] {"a", "<b>"}, new String[] {"a"}, 2, new ArrayList());
+        assertEquals(2, diff.numLines());
+        assertEquals("1 a\n2 <b>", diff.getLeftText());
+        assertEquals("1 a\n  ", diff.getRightText());
+        assertSame(diff.getLeftText(), diff.getLeftText());
+        assertEquals("<pre><a name='Position0'>1 </a>a\n<span style='background-color: #A6CAF0'><a name='Position1'>2 </a>&lt;b&gt;</span></pre>", diff.getLeftHtml());
+        assertEquals("<pre><a name='Position0'>1 </a>a\n<a name='Position1'>  </a></pre>", diff.getRightHtml());
+    }
+
+    public void testHighlightsChangedWords() {
+        Diff diff = DiffHelper.diff("int x = 1;\nint y = <2>;", "int x = 10;\nfloat z;", false);
+        assertEquals("<pre><span style='background-color: #A6CAF0'><a name='Position0'>1 </a>int x = 1;</span>\n"
+                + "<span style='background-color: #A6CAF0'><a name='Position1'>2 </a>int y = &lt;2&gt;;</span></pre>", diff.getLeftHtml());
+        assertEquals("<pre><span style='background-color: #A6CAF0'><a name='Position0'>1 </a>int x = 1<span style='background-color: #6FA3DE'>0</span>;</span>\n"
+                + "<span style='background-color: #A6CAF0'><a name='Position1'>2 </a>float z;</span></pre>", diff.getRightHtml());
+        assertEquals("1 int x = 1;\n2 int y = <2>;", diff.getLeftText());
+    }
+
+    public void testSharesChangedWordsAcrossDiffs() {
+        LineDictionary dictionary = new LineDictionary();
+        InlineDiff inlineDiff = new InlineDiff();
+        Diff first = DiffHelper.diff(dictionary.intern("a\nint x = 1;"), dictionary.intern("a\nint x = 2;"), dictionary, new MyersDiff(), inlineDiff);
+        Diff second = DiffHelper.diff(dictionary.intern("int x = 1;\nb"), dictionary.intern("int x = 2;\nb"), dictionary, new MyersDiff(), inlineDiff);
+        first.getLeftHtml();
+        assertEquals(1, inlineDiff.size());
+        assertTrue(second.getRightHtml().indexOf("int x = <span style='background-color: #6FA3DE'>2</span>;") > 0);
+        assertEquals(1, inlineDiff.size());
+    }
+
+    public void testDifferencesOnly() {
+        Diff diff = DiffHelper.diff("a\nb\nc\nd\ne\nf\ng\nh\ni\nj", "a\nb\nc\nd\ne\nf\ng\nh\nX\nj\nk", false);
+        assertEquals(11, diff.numLines());
+        assertEquals("8,10", StringUtils.join(diff.getDifferencePositions(), ","));
+        assertEquals("[8,9)->[8,9),[10,10)->[10,11)", StringUtils.join(diff.getHunks(), ","));
+        Diff differencesOnly = diff.differencesOnly(3);
+        assertSame(differencesOnly, diff.differencesOnly(3));
+        assertEquals(DiffHelper.diff("a\nb\nc\nd\ne\nf\ng\nh\ni\nj", "a\nb\nc\nd\ne\nf\ng\nh\nX\nj\nk", true).getLeftText(), differencesOnly.getLeftText());
+        assertEquals("3,5", StringUtils.join(differencesOnly.getDifferencePositions(), ","));
+        assertEquals(diff.getHunks(), differencesOnly.getHunks());
+        assertEquals("8  h\n9  i\n10 j\n   ", diff.differencesOnly(1).getLeftText());
+        assertEquals("1,3", StringUtils.join(diff.differencesOnly(1).getDifferencePositions(), ","));
+        assertEquals("9  i\n   \n   \n   \n   ", diff.differencesOnly(0).getLeftText());
+        assertEquals(11, diff.numLines());
+    }
+
+}
@@ -1,5 +1,9 @@
 package com.jonathanaquino.svntimelapseview;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 public class SearchPanelTest extends TestCase {
@@ -7,16 +11,24 @@ public class SearchPanelTest extends TestCase {
     private class TestSearchPanel extends SearchPanel {
     }
 
-    public void testNextDiffIndex() {
+    public void testNextDiffPosition() {
+        TestSearchPanel searchPanel = new TestSearchPanel();
+        List<Integer> positions = Arrays.asList(new Integer[] {2, 5, 9});
+        assertEquals(2, searchPanel.nextDiffPosition(0, positions));
+        assertEquals(5, searchPanel.nextDiffPosition(2, positions));
+        assertEquals(5, searchPanel.nextDiffPosition(3, positions));
+        assertEquals(-1, searchPanel.nextDiffPosition(9, positions));
+        assertEquals(-1, searchPanel.nextDiffPosition(0, Collections.<Integer>emptyList()));
+    }
+
+    public void testPreviousDiffPosition() {
         TestSearchPanel searchPanel = new TestSearchPanel();
-        assertEquals(1, searchPanel.nextDiffIndex(0, 3));
-        assertEquals(2, searchPanel.nextDiffIndex(1, 3));
-        assertEquals(2, searchPanel.nextDiffIndex(2, 3));
-        assertEquals(0, searchPanel.previousDiffIndex(0, 3));
-        assertEquals(0, searchPanel.previousDiffIndex(1, 3));
-        assertEquals(1, searchPanel.previousDiffIndex(2, 3));
-        assertEquals(0, searchPanel.nextDiffIndex(-1, 3));
-        assertEquals(0, searchPanel.previousDiffIndex(-1, 3));
+        List<Integer> positions = Arrays.asList(new Integer[] {2, 5, 9});
+        assertEquals(-1, searchPanel.previousDiffPosition(2, positions));
+        assertEquals(2, searchPanel.previousDiffPosition(3, positions));
+        assertEquals(2, searchPanel.previousDiffPosition(5, positions));
+        assertEquals(9, searchPanel.previousDiffPosition(20, positions));
+        assertEquals(-1, searchPanel.previousDiffPosition(0, Collections.<Integer>emptyList()));
     }
 
 }
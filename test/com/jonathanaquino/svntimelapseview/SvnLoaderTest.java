@@ -1,18 +1,139 @@
 package com.jonathanaquino.svntimelapseview;
 
-import com.jonathanaquino.svntimelapseview.scm.SvnLoader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 import junit.framework.TestCase;
 
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.internal.io.fs.FSRepositoryFactory;
+import org.tmatesoft.svn.core.io.ISVNEditor;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+import org.tmatesoft.svn.core.io.diff.SVNDeltaGenerator;
+
+import com.jonathanaquino.svntimelapseview.scm.SvnLoader;
+import com.jonathanaquino.svntimelapseview.storage.RevisionStore;
+
 public class SvnLoaderTest extends TestCase {
 
     private class TestSvnLoader extends SvnLoader {
         public String formatDate(String date) {
             return super.formatDate(date);
         }
-        protected String determineEncoding(byte[] array) {
-            return super.determineEncoding(array);
+        public void load(String filePathOrUrl, int limit) throws Exception {
+            loadRevisionsProper(filePathOrUrl, limit);
+        }
+        public void refresh(String filePathOrUrl, Revision newest, int limit) throws Exception {
+            refreshRevisionsProper(filePathOrUrl, newest, limit);
+        }
+    }
+
+    /** The temporary directories created by the test, deleted when it ends */
+    private List directories = new ArrayList();
+
+    protected void tearDown() throws Exception {
+        for (int i = 0; i < directories.size(); i++) {
+            delete((File) directories.get(i));
+        }
+    }
+
+    /**
+     * Returns the path of a new temporary directory, which is deleted when the test ends.
+     *
+     * @return  a path that does not exist yet
+     */
+    private File createTempDirectory() throws Exception {
+        File directory = File.createTempFile("svn-time-lapse-view", "");
+        directory.delete();
+        directories.add(directory);
+        return directory;
+    }
+
+    /**
+     * Deletes a file, or a directory and everything in it.
+     *
+     * @param file  the file or directory to delete
+     */
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        for (int i = 0; children != null && i < children.length; i++) {
+            delete(children[i]);
+        }
+        file.delete();
+    }
+
+    /**
+     * Creates a local repository in which each element of the array is committed
+     * as a new revision of the file a.txt.
+     *
+     * @param contents  the successive contents of a.txt
+     * @return  the URL of a.txt
+     */
+    private String createRepository(String[] contents) throws Exception {
+        File directory = createTempDirectory();
+        FSRepositoryFactory.setup();
+        SVNURL url = SVNRepositoryFactory.createLocalRepository(directory, true, false);
+        commit(url.appendPath("a.txt", false).toString(), contents);
+        return url.appendPath("a.txt", false).toString();
+    }
+
+    /**
+     * Commits each element of the array as a new revision of the file.
+     *
+     * @param fileUrl  the URL of a.txt, which is added by the first commit to the repository
+     * @param contents  the successive contents of a.txt
+     */
+    private void commit(String fileUrl, String[] contents) throws Exception {
+        SVNRepository repository = SVNRepositoryFactory.create(SVNURL.parseURIEncoded(fileUrl).removePathTail());
+        for (int i = 0; i < contents.length; i++) {
+            long revision = repository.getLatestRevision();
+            ISVNEditor editor = repository.getCommitEditor("Commit " + revision, null);
+            editor.openRoot(-1);
+            if (revision == 0) {
+                editor.addFile("a.txt", null, -1);
+            } else {
+                editor.openFile("a.txt", -1);
+            }
+            editor.applyTextDelta("a.txt", null);
+            String checksum = new SVNDeltaGenerator().sendDelta("a.txt", new ByteArrayInputStream(contents[i].getBytes("UTF-8")), editor, true);
+            editor.closeFile("a.txt", checksum);
+            editor.closeDir();
+            editor.closeEdit();
         }
+        repository.closeSession();
+    }
+
+    public void testLoadRevisionsWithSessionPool() throws Exception {
+        String url = createRepository(new String[] {"a", "a\nb", "a\nb\nc", "b\nc", "c", "d"});
+        TestSvnLoader loader = new TestSvnLoader();
+        loader.setConcurrency(3);
+        loader.load(url, 100);
+        List revisions = loader.getRevisions();
+        assertEquals(6, revisions.size());
+        assertEquals(6, loader.getLoadedCount());
+        assertEquals("a", ((Revision) revisions.get(0)).getContents());
+        assertEquals("a\nb\nc", ((Revision) revisions.get(2)).getContents());
+        assertEquals("d", ((Revision) revisions.get(5)).getContents());
+        assertEquals(new Long(1), ((Revision) revisions.get(0)).getRevisionNumber());
+        assertEquals(new Long(6), ((Revision) revisions.get(5)).getRevisionNumber());
+        assertEquals("Commit 5", ((Revision) revisions.get(5)).getLogMessage());
+
+        loader = new TestSvnLoader();
+        loader.setConcurrency(2);
+        loader.load(url, 4);
+        revisions = loader.getRevisions();
+        assertEquals(4, revisions.size());
+        assertEquals("a\nb\nc", ((Revision) revisions.get(0)).getContents());
+        assertEquals("d", ((Revision) revisions.get(3)).getContents());
+        assertEquals(4, loader.getTotalCount());
+
+        loader = new TestSvnLoader();
+        loader.load(url, 0);
+        assertEquals(6, loader.getRevisions().size());
     }
 
     public void testFormatDate() {
@@ -20,14 +141,133 @@ public class SvnLoaderTest extends TestCase {
         assertEquals("2007-09-FOO", new TestSvnLoader().formatDate("2007-09-FOO"));
     }
     
-    public void testDetermineEncoding() {
-        assertNull(new TestSvnLoader().determineEncoding(new byte[] {}));
-        assertNull(new TestSvnLoader().determineEncoding(new byte[] {(byte)0xEF, (byte)0xBB}));
-        assertEquals("UTF-8", new TestSvnLoader().determineEncoding(new byte[] {(byte)0xEF, (byte)0xBB, 0}));
-        assertEquals("UTF-16", new TestSvnLoader().determineEncoding(new byte[] {(byte)0xFE, (byte)0xFF, 0}));
-        assertEquals("UTF-16", new TestSvnLoader().determineEncoding(new byte[] {(byte)0xFF, (byte)0xFE, 0}));
-        assertNull(new TestSvnLoader().determineEncoding(new byte[] {(byte)0xFF, (byte)0xEE, 0}));
-        
+    public void testClassifyRevisions() throws Exception {
+        String url = createRepository(new String[] {"a\n", "a\u0000b", "a\nb\nc\n"});
+        for (int i = 0; i < 2; i++) {
+            TestSvnLoader loader = new TestSvnLoader();
+            loader.setMaxDiffLines(2);
+            loader.setDeltaMode(i == 1);
+            loader.load(url, 100);
+            List revisions = loader.getRevisions();
+            assertEquals(Revision.NORMAL, ((Revision) revisions.get(0)).getKind());
+            assertEquals(Revision.BINARY, ((Revision) revisions.get(1)).getKind());
+            assertEquals("Binary file (3 bytes)", ((Revision) revisions.get(1)).getContents());
+            assertEquals(Revision.OVERSIZED, ((Revision) revisions.get(2)).getKind());
+        }
+    }
+
+    public void testContentHashes() throws Exception {
+        String url = createRepository(new String[] {"a", "a", "b"});
+        File directory = createTempDirectory();
+        for (int i = 0; i < 4; i++) {
+            TestSvnLoader loader = new TestSvnLoader();
+            loader.setDeltaMode(i == 1);
+            loader.setRevisionStore(i >= 2 ? new RevisionStore(directory) : null);
+            loader.load(url, 100);
+            List revisions = loader.getRevisions();
+            Revision first = (Revision) revisions.get(0);
+            assertEquals("0cc175b9c0f1b6a831c399e269772661", first.getContentHash());
+            assertTrue(first.hasSameContents((Revision) revisions.get(1)));
+            assertFalse(first.hasSameContents((Revision) revisions.get(2)));
+        }
+    }
+
+    public void testLoadRevisionsFromDeltas() throws Exception {
+        String url = createRepository(new String[] {"a", "a\nb", "a\nb\nc", "b\nc", "c", "d"});
+        TestSvnLoader loader = new TestSvnLoader();
+        loader.setDeltaMode(true);
+        loader.load(url, 100);
+        List revisions = loader.getRevisions();
+        assertEquals(6, revisions.size());
+        assertEquals(6, loader.getLoadedCount());
+        assertEquals("a", ((Revision) revisions.get(0)).getContents());
+        assertEquals("a\nb", ((Revision) revisions.get(1)).getContents());
+        assertEquals("b\nc", ((Revision) revisions.get(3)).getContents());
+        assertEquals("d", ((Revision) revisions.get(5)).getContents());
+        assertEquals(new Long(6), ((Revision) revisions.get(5)).getRevisionNumber());
+
+        loader = new TestSvnLoader();
+        loader.setDeltaMode(true);
+        loader.load(url, 2);
+        revisions = loader.getRevisions();
+        assertEquals(2, revisions.size());
+        assertEquals("c", ((Revision) revisions.get(0)).getContents());
+        assertEquals("d", ((Revision) revisions.get(1)).getContents());
+    }
+
+    public void testLoadRevisionsFromStore() throws Exception {
+        String url = createRepository(new String[] {"a", "b", "c"});
+        File directory = createTempDirectory();
+        TestSvnLoader loader = new TestSvnLoader();
+        loader.setRevisionStore(new RevisionStore(directory));
+        loader.load(url, 100);
+        assertTrue(new File(directory, "objects").isDirectory());
+
+        loader = new TestSvnLoader();
+        loader.setRevisionStore(new RevisionStore(directory));
+        loader.load(url, 100);
+        List revisions = loader.getRevisions();
+        assertEquals(3, revisions.size());
+        assertEquals("a", ((Revision) revisions.get(0)).getContents());
+        assertEquals("c", ((Revision) revisions.get(2)).getContents());
+        assertEquals(new Long(3), ((Revision) revisions.get(2)).getRevisionNumber());
+        assertEquals("Commit 2", ((Revision) revisions.get(2)).getLogMessage());
+    }
+
+    public void testRefreshRevisions() throws Exception {
+        String url = createRepository(new String[] {"a", "b", "c"});
+        TestSvnLoader loader = new TestSvnLoader();
+        loader.load(url, 100);
+        Revision newest = (Revision) loader.getRevisions().get(2);
+        loader.refresh(url, newest, 100);
+        assertEquals(0, loader.getRevisions().size());
+
+        commit(url, new String[] {"d", "e"});
+        loader.refresh(url, newest, 100);
+        List revisions = loader.getRevisions();
+        assertEquals(2, revisions.size());
+        assertEquals("d", ((Revision) revisions.get(0)).getContents());
+        assertEquals("e", ((Revision) revisions.get(1)).getContents());
+        assertEquals(new Long(5), ((Revision) revisions.get(1)).getRevisionNumber());
+
+        loader.setDeltaMode(true);
+        loader.refresh(url, newest, 1);
+        revisions = loader.getRevisions();
+        assertEquals(1, revisions.size());
+        assertEquals("e", ((Revision) revisions.get(0)).getContents());
+    }
+
+    public void testPublishRevisionsNewestFirst() throws Exception {
+        String url = createRepository(new String[] {"a", "b", "c", "d"});
+        final TestSvnLoader loader = new TestSvnLoader();
+        final List snapshots = new ArrayList();
+        final CountDownLatch done = new CountDownLatch(1);
+        loader.setConcurrency(2);
+        loader.loadRevisions(url, 100, new Closure() {
+            public void execute() throws Exception {
+                snapshots.add(loader.getPublishedRevisions());
+            }
+        }, new Closure() {
+            public void execute() throws Exception {
+                done.countDown();
+            }
+        });
+        done.await();
+        assertEquals(4, snapshots.size());
+        List first = (List) snapshots.get(0);
+        assertEquals(1, first.size());
+        assertEquals("d", ((Revision) first.get(0)).getContents());
+        List second = (List) snapshots.get(1);
+        assertEquals(2, second.size());
+        assertEquals("c", ((Revision) second.get(0)).getContents());
+        assertEquals("d", ((Revision) second.get(1)).getContents());
+        assertEquals(1, first.size());
+        assertEquals(loader.getRevisions(), loader.getPublishedRevisions());
+        try {
+            second.add(first.get(0));
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
     }
 
 }
@@ -0,0 +1,31 @@
+package com.jonathanaquino.svntimelapseview.diff;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.lang.StringUtils;
+
+public class AlignmentTest extends TestCase {
+
+    private String rows(int[] left, int[] right) {
+        Alignment alignment = Alignment.create(new MyersDiff().diff(left, right), left.length);
+        List rows = new ArrayList();
+        for (int i = 0; i < alignment.size(); i++) {
+            rows.add(alignment.getLeftLine(i) + ":" + alignment.getRightLine(i));
+        }
+        return StringUtils.join(rows, ",");
+    }
+
+    public void testCreate() {
+        assertEquals("", rows(new int[] {}, new int[] {}));
+        assertEquals("0:0,1:1", rows(new int[] {1, 2}, new int[] {1, 2}));
+        assertEquals("-1:0,-1:1", rows(new int[] {}, new int[] {1, 2}));
+        assertEquals("0:0,1:-1,2:1", rows(new int[] {1, 2, 3}, new int[] {1, 3}));
+        assertEquals("0:0,-1:1,1:2", rows(new int[] {1, 3}, new int[] {1, 2, 3}));
+        assertEquals("0:0,1:1,-1:2,2:3", rows(new int[] {1, 2, 3}, new int[] {1, 4, 5, 3}));
+        assertEquals("0:0,1:1,2:-1,3:2", rows(new int[] {1, 4, 5, 3}, new int[] {1, 2, 3}));
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.jonathanaquino.svntimelapseview.diff;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.lang.StringUtils;
+
+public class HistogramDiffTest extends TestCase {
+
+    private String diff(int[] left, int[] right) {
+        return StringUtils.join(new HistogramDiff().diff(left, right).iterator(), ",");
+    }
+
+    public void testDiff() {
+        assertEquals("", diff(new int[] {}, new int[] {}));
+        assertEquals("[0,0)->[0,2)", diff(new int[] {}, new int[] {1, 2}));
+        assertEquals("[1,2)->[1,1)", diff(new int[] {1, 2, 3}, new int[] {1, 3}));
+        assertEquals("[1,2)->[1,2)", diff(new int[] {1, 2, 3}, new int[] {1, 4, 3}));
+    }
+
+    public void testAnchorsOnRareLines() {
+        // Functions f, g and h, whose braces (1 and 2) and separators (3) repeat
+        int[] left = new int[] {10, 1, 100, 2, 3, 11, 1, 101, 2};
+        int[] right = new int[] {11, 1, 101, 2, 3, 12, 1, 102, 2, 3, 10, 1, 100, 2};
+        assertEquals("[0,5)->[0,0),[8,8)->[3,13)", diff(left, right));
+        assertEquals(4, new MyersDiff().diff(left, right).size());
+    }
+
+    public void testFallsBackToMyersWithoutRareLines() {
+        int[] left = new int[200];
+        int[] right = new int[200];
+        right[50] = 1;
+        right[150] = 1;
+        assertEquals(new MyersDiff().diff(left, right), new HistogramDiff(64).diff(left, right));
+    }
+
+    public void testIgnoresLinesOccurringMoreThanMaxOccurrences() {
+        int[] left = new int[] {10, 1, 100, 2, 3, 11, 1, 101, 2};
+        int[] right = new int[] {11, 1, 101, 2, 3, 12, 1, 102, 2, 3, 10, 1, 100, 2};
+        assertEquals(new MyersDiff().diff(left, right), new HistogramDiff(0).diff(left, right));
+        assertFalse(new MyersDiff().diff(left, right).equals(new HistogramDiff(1).diff(left, right)));
+    }
+
+    public void testUnchangedLinesMatch() {
+        Random random = new Random(42);
+        for (int n = 0; n < 500; n++) {
+            int[] left = randomLines(random);
+            int[] right = randomLines(random);
+            List hunks = new HistogramDiff(3).diff(left, right);
+            int i = 0, j = 0;
+            for (Iterator h = hunks.iterator(); h.hasNext(); ) {
+                Hunk hunk = (Hunk) h.next();
+                assertEquals(hunk.getLeftStart() - i, hunk.getRightStart() - j);
+                for (; i < hunk.getLeftStart(); i++, j++) { assertEquals(left[i], right[j]); }
+                i = hunk.getLeftEnd();
+                j = hunk.getRightEnd();
+            }
+            assertEquals(left.length - i, right.length - j);
+            for (; i < left.length; i++, j++) { assertEquals(left[i], right[j]); }
+        }
+    }
+
+    /**
+     * Returns lines drawn from a small alphabet, so that many of them repeat.
+     */
+    private int[] randomLines(Random random) {
+        int[] lines = new int[random.nextInt(40)];
+        for (int i = 0; i < lines.length; i++) { lines[i] = random.nextInt(8) * 1000003; }
+        return lines;
+    }
+
+}
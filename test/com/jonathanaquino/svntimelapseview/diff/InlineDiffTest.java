@@ -0,0 +1,58 @@
+package com.jonathanaquino.svntimelapseview.diff;
+
+import junit.framework.TestCase;
+
+public class InlineDiffTest extends TestCase {
+
+    private String diff(String left, String right, int maxTokens) {
+        int[][] ranges = InlineDiff.diff(left, right, maxTokens);
+        if (ranges == null) { return null; }
+        return highlight(left, ranges[0]) + " | " + highlight(right, ranges[1]);
+    }
+
+    private String highlight(String line, int[] ranges) {
+        StringBuffer buffer = new StringBuffer();
+        int end = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            buffer.append(line.substring(end, ranges[i])).append('[').append(line.substring(ranges[i], ranges[i + 1])).append(']');
+            end = ranges[i + 1];
+        }
+        return buffer.append(line.substring(end)).toString();
+    }
+
+    public void testWords() {
+        assertEquals("int x = [1];  | int x = [2]; ", diff("int x = 1; ", "int x = 2; ", 100));
+        assertEquals("foo(a, []b); | foo(a, [c, ]b);", diff("foo(a, b);", "foo(a, c, b);", 100));
+        assertEquals("return [old]Value; | return [new]Value;", diff("return oldValue;", "return newValue;", 100));
+        assertEquals("a[ b ]c | a[  ]c", diff("a b c", "a  c", 100));
+    }
+
+    public void testFallsBackToWholeLine() {
+        assertNull(diff("alpha beta", "gamma", 100));
+        assertNull(diff("", "gamma", 100));
+        assertNull(diff("int y = <2>;", "float z;", 100));
+        assertNull(diff("int x = 1;", "int x = 2;", 15));
+        assertNotNull(diff("int x = 1;", "int x = 2;", 16));
+    }
+
+    public void testMemoizesPairs() {
+        InlineDiff inlineDiff = new InlineDiff();
+        int[][] ranges = inlineDiff.ranges(3, 4, "a b", "a c");
+        assertSame(ranges, inlineDiff.ranges(3, 4, "a b", "a c"));
+        assertNull(inlineDiff.ranges(5, 6, "a", "b"));
+        assertNull(inlineDiff.ranges(5, 6, "a", "b"));
+        assertEquals(2, inlineDiff.size());
+    }
+
+    public void testForgetsLeastRecentlyUsedPairs() {
+        InlineDiff inlineDiff = new InlineDiff(InlineDiff.DEFAULT_MAX_TOKENS, 2);
+        int[][] ranges = inlineDiff.ranges(1, 2, "a b", "a c");
+        inlineDiff.ranges(3, 4, "a d", "a e");
+        assertSame(ranges, inlineDiff.ranges(1, 2, "a b", "a c"));
+        inlineDiff.ranges(5, 6, "a f", "a g");
+        assertEquals(2, inlineDiff.size());
+        assertSame(ranges, inlineDiff.ranges(1, 2, "a b", "a c"));
+        assertNotSame(ranges, inlineDiff.ranges(3, 4, "a b", "a c"));
+    }
+
+}
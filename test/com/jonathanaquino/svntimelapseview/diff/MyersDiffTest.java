@@ -0,0 +1,70 @@
+package com.jonathanaquino.svntimelapseview.diff;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.lang.StringUtils;
+
+public class MyersDiffTest extends TestCase {
+
+    private String diff(int[] left, int[] right) {
+        return StringUtils.join(new MyersDiff().diff(left, right).iterator(), ",");
+    }
+
+    public void testDiff() {
+        assertEquals("", diff(new int[] {}, new int[] {}));
+        assertEquals("", diff(new int[] {1, 2, 3}, new int[] {1, 2, 3}));
+        assertEquals("[0,0)->[0,2)", diff(new int[] {}, new int[] {1, 2}));
+        assertEquals("[0,2)->[0,0)", diff(new int[] {1, 2}, new int[] {}));
+        assertEquals("[1,2)->[1,1)", diff(new int[] {1, 2, 3}, new int[] {1, 3}));
+        assertEquals("[1,1)->[1,2)", diff(new int[] {1, 3}, new int[] {1, 2, 3}));
+        assertEquals("[1,2)->[1,2)", diff(new int[] {1, 2, 3}, new int[] {1, 4, 3}));
+        assertEquals("[0,6)->[0,6)", diff(new int[] {0, 0, 0, 0, 0, 0}, new int[] {1, 2, 3, 4, 5, 6}));
+    }
+
+    public void testEditsAsFewLinesAsIncava() {
+        Random random = new Random(42);
+        for (int n = 0; n < 500; n++) {
+            int[] left = randomLines(random);
+            int[] right = randomLines(random);
+            List hunks = new MyersDiff().diff(left, right);
+            assertEquals(changedLineCount(new IncavaDiff().diff(left, right)), changedLineCount(hunks));
+            assertUnchangedLinesMatch(left, right, hunks);
+        }
+    }
+
+    /**
+     * Returns lines drawn from a small alphabet, so that many of them repeat.
+     */
+    private int[] randomLines(Random random) {
+        int[] lines = new int[random.nextInt(40)];
+        for (int i = 0; i < lines.length; i++) { lines[i] = random.nextInt(5); }
+        return lines;
+    }
+
+    private int changedLineCount(List hunks) {
+        int count = 0;
+        for (Iterator i = hunks.iterator(); i.hasNext(); ) {
+            Hunk hunk = (Hunk) i.next();
+            count += hunk.getLeftEnd() - hunk.getLeftStart() + hunk.getRightEnd() - hunk.getRightStart();
+        }
+        return count;
+    }
+
+    private void assertUnchangedLinesMatch(int[] left, int[] right, List hunks) {
+        int i = 0, j = 0;
+        for (Iterator h = hunks.iterator(); h.hasNext(); ) {
+            Hunk hunk = (Hunk) h.next();
+            assertEquals(hunk.getLeftStart() - i, hunk.getRightStart() - j);
+            for (; i < hunk.getLeftStart(); i++, j++) { assertEquals(left[i], right[j]); }
+            i = hunk.getLeftEnd();
+            j = hunk.getRightEnd();
+        }
+        assertEquals(left.length - i, right.length - j);
+        for (; i < left.length; i++, j++) { assertEquals(left[i], right[j]); }
+    }
+
+}
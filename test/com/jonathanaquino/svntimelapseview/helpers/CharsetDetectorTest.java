@@ -0,0 +1,46 @@
+package com.jonathanaquino.svntimelapseview.helpers;
+
+import java.io.ByteArrayOutputStream;
+
+import junit.framework.TestCase;
+
+public class CharsetDetectorTest extends TestCase {
+
+    private String encoding(byte[] bytes) {
+        return CharsetDetector.detect(bytes).getEncoding();
+    }
+
+    public void testByteOrderMarks() throws Exception {
+        assertEquals("UTF-8", encoding(new byte[] {(byte)0xEF, (byte)0xBB, (byte)0xBF, 'a'}));
+        assertEquals("UTF-16", encoding(new byte[] {(byte)0xFE, (byte)0xFF, 0, 'a'}));
+        assertEquals("UTF-16", encoding(new byte[] {(byte)0xFF, (byte)0xFE, 'a', 0}));
+    }
+
+    public void testEncodingsWithoutByteOrderMark() throws Exception {
+        assertEquals("UTF-8", encoding(new byte[] {}));
+        assertEquals("UTF-8", encoding("plain text\n".getBytes("US-ASCII")));
+        assertEquals("UTF-8", encoding("r\u00e9sum\u00e9\n".getBytes("UTF-8")));
+        assertEquals("ISO-8859-1", encoding("r\u00e9sum\u00e9\n".getBytes("ISO-8859-1")));
+        assertEquals("ISO-8859-1", encoding(new byte[] {'a', (byte)0xC3}));
+        assertEquals("UTF-16LE", encoding("line 1\nline 2\n".getBytes("UTF-16LE")));
+        assertEquals("UTF-16BE", encoding("line 1\nline 2\n".getBytes("UTF-16BE")));
+    }
+
+    public void testBinary() throws Exception {
+        assertTrue(CharsetDetector.detect(new byte[] {'G', 'I', 'F', '8', '9', 'a', 1, 0, 1, 0, (byte)0x80, 0, 0, 0, 0, 0}).isBinary());
+        assertFalse(CharsetDetector.detect("text".getBytes("UTF-8")).isBinary());
+    }
+
+    public void testDetectsWhilePassingBytesOn() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        CharsetDetector detector = new CharsetDetector(outputStream);
+        byte[] bytes = "caf\u00e9".getBytes("UTF-8");
+        detector.write(bytes, 0, 4);
+        assertEquals("ISO-8859-1", detector.getEncoding());
+        detector.write(bytes, 4, 1);
+        assertEquals("UTF-8", detector.getEncoding());
+        assertEquals(5, detector.getByteCount());
+        assertEquals("caf\u00e9", outputStream.toString("UTF-8"));
+    }
+
+}
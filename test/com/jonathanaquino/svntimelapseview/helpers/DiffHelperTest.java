@@ -1,7 +1,6 @@
 package com.jonathanaquino.svntimelapseview.helpers;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 import junit.framework.TestCase;
@@ -9,6 +8,9 @@ import junit.framework.TestCase;
 import org.apache.commons.lang.StringUtils;
 
 import com.jonathanaquino.svntimelapseview.Diff;
+import com.jonathanaquino.svntimelapseview.diff.Alignment;
+import com.jonathanaquino.svntimelapseview.diff.IncavaDiff;
+import com.jonathanaquino.svntimelapseview.storage.LineDictionary;
 
 public class DiffHelperTest extends TestCase {
 
@@ -16,69 +18,49 @@ public class DiffHelperTest extends TestCase {
         public String[] mySplit(String fileContents) {
             return split(fileContents);
         }
-        public void myKeepDifferencesOnly(int context, boolean[] differenceFlags, List leftLines, List rightLines, List leftLineNumbers, List rightLineNumbers) {
-            keepDifferencesOnly(context, differenceFlags, leftLines, rightLines, leftLineNumbers, rightLineNumbers);
+        public Alignment myKeepDifferencesOnly(int context, boolean[] differenceFlags, Alignment alignment) {
+            return keepDifferencesOnly(context, differenceFlags, alignment);
         }
     }
+
+    private String keepDifferencesOnly(int context, boolean[] differenceFlags, int[] leftLines, int[] rightLines) {
+        Alignment alignment = new TestDiffHelper().myKeepDifferencesOnly(context, differenceFlags, new Alignment(leftLines, rightLines, leftLines.length));
+        List leftLineNumbers = new ArrayList();
+        List rightLineNumbers = new ArrayList();
+        for (int i = 0; i < alignment.size(); i++) {
+            leftLineNumbers.add(alignment.getLeftLine(i) == -1 ? "" : String.valueOf(alignment.getLeftLine(i) + 1));
+            rightLineNumbers.add(alignment.getRightLine(i) == -1 ? "" : String.valueOf(alignment.getRightLine(i) + 1));
+        }
+        return StringUtils.join(leftLineNumbers, ",") + ";" + StringUtils.join(rightLineNumbers, ",");
+    }
     
     public void testKeepDifferencesOnly1() {
-        boolean[] differenceFlags = new boolean[] {};
-        List leftLines = new ArrayList(Arrays.asList(new String[] {}));
-        List rightLines = new ArrayList(Arrays.asList(new String[] {}));
-        List leftLineNumbers = new ArrayList(Arrays.asList(new String[] {}));
-        List rightLineNumbers = new ArrayList(Arrays.asList(new String[] {}));
-        new TestDiffHelper().myKeepDifferencesOnly(2, differenceFlags, leftLines, rightLines, leftLineNumbers, rightLineNumbers);
-        assertEquals(";;;", StringUtils.join(leftLines, ",") + ";" + StringUtils.join(rightLines, ",") + ";" + StringUtils.join(leftLineNumbers, ",") + ";" + StringUtils.join(rightLineNumbers, ","));
+        assertEquals(";", keepDifferencesOnly(2, new boolean[] {}, new int[] {}, new int[] {}));
     }
     
     public void testKeepDifferencesOnly2() {
         boolean[] differenceFlags = new boolean[] {true, false, false, false, false, false};
-        List leftLines = new ArrayList(Arrays.asList(new String[] {"a", "b", "c", "d", "e", "f"}));
-        List rightLines = new ArrayList(Arrays.asList(new String[] {"", "b", "c", "d", "e", "f"}));
-        List leftLineNumbers = new ArrayList(Arrays.asList(new String[] {"1", "2", "3", "4", "5", "6"}));
-        List rightLineNumbers = new ArrayList(Arrays.asList(new String[] {"", "1", "2", "3", "4", "5"}));
-        new TestDiffHelper().myKeepDifferencesOnly(2, differenceFlags, leftLines, rightLines, leftLineNumbers, rightLineNumbers);
-        assertEquals("a,b,c,,,;,b,c,,,;1,2,3,,,;,1,2,,,", StringUtils.join(leftLines, ",") + ";" + StringUtils.join(rightLines, ",") + ";" + StringUtils.join(leftLineNumbers, ",") + ";" + StringUtils.join(rightLineNumbers, ","));
+        assertEquals("1,2,3,,,;,1,2,,,", keepDifferencesOnly(2, differenceFlags, new int[] {0, 1, 2, 3, 4, 5}, new int[] {-1, 0, 1, 2, 3, 4}));
     }
     
     public void testKeepDifferencesOnly3() {
         boolean[] differenceFlags = new boolean[] {false, false, false, false, false, true};
-        List leftLines = new ArrayList(Arrays.asList(new String[] {"a", "b", "c", "d", "e", "f"}));
-        List rightLines = new ArrayList(Arrays.asList(new String[] {"a", "b", "c", "d", "e", ""}));
-        List leftLineNumbers = new ArrayList(Arrays.asList(new String[] {"1", "2", "3", "4", "5", "6"}));
-        List rightLineNumbers = new ArrayList(Arrays.asList(new String[] {"1", "2", "3", "4", "5", ""}));
-        new TestDiffHelper().myKeepDifferencesOnly(2, differenceFlags, leftLines, rightLines, leftLineNumbers, rightLineNumbers);
-        assertEquals("d,e,f;d,e,;4,5,6;4,5,", StringUtils.join(leftLines, ",") + ";" + StringUtils.join(rightLines, ",") + ";" + StringUtils.join(leftLineNumbers, ",") + ";" + StringUtils.join(rightLineNumbers, ","));
+        assertEquals("4,5,6;4,5,", keepDifferencesOnly(2, differenceFlags, new int[] {0, 1, 2, 3, 4, 5}, new int[] {0, 1, 2, 3, 4, -1}));
     }
     
     public void testKeepDifferencesOnly4() {
         boolean[] differenceFlags = new boolean[] {true, false, false, false, false, true};
-        List leftLines = new ArrayList(Arrays.asList(new String[] {"", "b", "c", "d", "e", ""}));
-        List rightLines = new ArrayList(Arrays.asList(new String[] {"a", "b", "c", "d", "e", "f"}));
-        List leftLineNumbers = new ArrayList(Arrays.asList(new String[] {"", "1", "2", "3", "4", ""}));
-        List rightLineNumbers = new ArrayList(Arrays.asList(new String[] {"1", "2", "3", "4", "5", "6"}));
-        new TestDiffHelper().myKeepDifferencesOnly(1, differenceFlags, leftLines, rightLines, leftLineNumbers, rightLineNumbers);
-        assertEquals(",b,,,,e,;a,b,,,,e,f;,1,,,,4,;1,2,,,,5,6", StringUtils.join(leftLines, ",") + ";" + StringUtils.join(rightLines, ",") + ";" + StringUtils.join(leftLineNumbers, ",") + ";" + StringUtils.join(rightLineNumbers, ","));
+        assertEquals(",1,,,,4,;1,2,,,,5,6", keepDifferencesOnly(1, differenceFlags, new int[] {-1, 0, 1, 2, 3, -1}, new int[] {0, 1, 2, 3, 4, 5}));
     }
     
     public void testKeepDifferencesOnly5() {
         boolean[] differenceFlags = new boolean[] {false, false, true, false, false, false};
-        List leftLines = new ArrayList(Arrays.asList(new String[] {"a", "b", "X", "d", "e", "f"}));
-        List rightLines = new ArrayList(Arrays.asList(new String[] {"a", "b", "c", "d", "e", "f"}));
-        List leftLineNumbers = new ArrayList(Arrays.asList(new String[] {"1", "2", "3", "4", "5", "6"}));
-        List rightLineNumbers = new ArrayList(Arrays.asList(new String[] {"1", "2", "3", "4", "5", "6"}));
-        new TestDiffHelper().myKeepDifferencesOnly(1, differenceFlags, leftLines, rightLines, leftLineNumbers, rightLineNumbers);
-        assertEquals("b,X,d,,,;b,c,d,,,;2,3,4,,,;2,3,4,,,", StringUtils.join(leftLines, ",") + ";" + StringUtils.join(rightLines, ",") + ";" + StringUtils.join(leftLineNumbers, ",") + ";" + StringUtils.join(rightLineNumbers, ","));
+        assertEquals("2,3,4,,,;2,3,4,,,", keepDifferencesOnly(1, differenceFlags, new int[] {0, 1, 2, 3, 4, 5}, new int[] {0, 1, 2, 3, 4, 5}));
     }
     
     public void testKeepDifferencesOnly6() {
         boolean[] differenceFlags = new boolean[] {false, false, true, true, false, false};
-        List leftLines = new ArrayList(Arrays.asList(new String[] {"a", "b", "X", "X", "e", "f"}));
-        List rightLines = new ArrayList(Arrays.asList(new String[] {"a", "b", "c", "d", "e", "f"}));
-        List leftLineNumbers = new ArrayList(Arrays.asList(new String[] {"1", "2", "3", "4", "5", "6"}));
-        List rightLineNumbers = new ArrayList(Arrays.asList(new String[] {"1", "2", "3", "4", "5", "6"}));
-        new TestDiffHelper().myKeepDifferencesOnly(1, differenceFlags, leftLines, rightLines, leftLineNumbers, rightLineNumbers);
-        assertEquals("b,X,X,e,,,;b,c,d,e,,,;2,3,4,5,,,;2,3,4,5,,,", StringUtils.join(leftLines, ",") + ";" + StringUtils.join(rightLines, ",") + ";" + StringUtils.join(leftLineNumbers, ",") + ";" + StringUtils.join(rightLineNumbers, ","));
+        assertEquals("2,3,4,5,,,;2,3,4,5,,,", keepDifferencesOnly(1, differenceFlags, new int[] {0, 1, 2, 3, 4, 5}, new int[] {0, 1, 2, 3, 4, 5}));
     }    
 
     public void testSplit() {
@@ -123,7 +105,27 @@ public class DiffHelperTest extends TestCase {
         assertEquals("0", StringUtils.join(diff.getDifferencePositions(), ","));
 
         diff = DiffHelper.diff("A\nA\nA\nA\nA\nA", "A\n1\n2\nA\nA\n\5", false);
+        assertEquals("1,6", StringUtils.join(diff.getDifferencePositions(), ","));
+
+        LineDictionary dictionary = new LineDictionary();
+        diff = DiffHelper.diff(dictionary.intern("A\nA\nA\nA\nA\nA"), dictionary.intern("A\n1\n2\nA\nA\n\5"), dictionary, new IncavaDiff(), false);
         assertEquals("1,5", StringUtils.join(diff.getDifferencePositions(), ","));
     }
 
+    public void testDiffDifferencesOnly() {
+        Diff diff = DiffHelper.diff("a\nb\nc\nd\ne\nf\ng\nh\ni\nj", "a\nb\nc\nd\ne\nf\ng\nh\nX\nj\nk", true);
+        assertEquals("6  f\n7  g\n8  h\n9  i\n10 j\n   ", diff.getLeftText());
+        assertEquals("6  f\n7  g\n8  h\n9  X\n10 j\n11 k", diff.getRightText());
+        assertEquals("3,5", StringUtils.join(diff.getDifferencePositions(), ","));
+    }
+
+    public void testSummaryDiff() {
+        Diff diff = DiffHelper.summaryDiff("Binary file, 3 bytes", "Binary file, 4 bytes");
+        assertEquals(1, diff.numLines());
+        assertEquals(" Binary file, 3 bytes", diff.getLeftText());
+        assertEquals(" Binary file, 4 bytes", diff.getRightText());
+        assertEquals("0", StringUtils.join(diff.getDifferencePositions(), ","));
+        assertEquals("", StringUtils.join(DiffHelper.summaryDiff("Binary file, 3 bytes", "Binary file, 3 bytes").getDifferencePositions(), ","));
+    }
+
 }
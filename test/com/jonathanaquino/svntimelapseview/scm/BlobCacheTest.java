@@ -0,0 +1,46 @@
+package com.jonathanaquino.svntimelapseview.scm;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+public class BlobCacheTest extends TestCase {
+
+    private ObjectId id(int n) {
+        return ObjectId.fromString(Integer.toHexString(0x10000000 + n) + "00000000000000000000000000000000");
+    }
+
+    public void testHitsAndMisses() {
+        BlobCache cache = new BlobCache(100);
+        assertNull(cache.get(id(1)));
+        cache.put(id(1), new byte[] {1, 2, 3});
+        assertEquals(3, cache.get(id(1)).length);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(3, cache.getSize());
+    }
+
+    public void testLeastRecentlyUsedBlobsLeaveTheByteBudget() {
+        BlobCache cache = new BlobCache(10);
+        byte[] a = new byte[4], b = new byte[4], c = new byte[4];
+        cache.put(id(1), a);
+        cache.put(id(2), b);
+        cache.get(id(1));
+        cache.put(id(3), c);
+        assertEquals(8, cache.getSize());
+        // Blob 2 was evicted but is still softly reachable while the test holds it
+        assertSame(b, cache.get(id(2)));
+        assertSame(a, cache.get(id(1)));
+        assertSame(c, cache.get(id(3)));
+        assertTrue(cache.getSize() <= 10);
+    }
+
+    public void testBlobLargerThanCapacityIsHeldSoftly() {
+        BlobCache cache = new BlobCache(10);
+        byte[] big = new byte[20];
+        cache.put(id(1), big);
+        assertEquals(0, cache.getSize());
+        assertSame(big, cache.get(id(1)));
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.jonathanaquino.svntimelapseview.scm;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+public class ChangedPathIndexTest extends TestCase {
+
+    private File directory;
+    private Git git;
+
+    protected void setUp() throws Exception {
+        directory = File.createTempFile("svn-time-lapse-view", "");
+        directory.delete();
+        git = Git.init().setDirectory(directory).call();
+    }
+
+    private RevCommit commit(String path, String contents) throws Exception {
+        File file = new File(directory, path);
+        file.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter(file);
+        writer.write(contents);
+        writer.close();
+        git.add().addFilepattern(path).call();
+        return git.commit().setMessage(path).call();
+    }
+
+    public void testChangedPathsAndTheirDirectoriesMatch() throws Exception {
+        RevCommit c1 = commit("a/x.txt", "1");
+        RevCommit c2 = commit("b.txt", "1");
+        RevCommit c3 = commit("a/x.txt", "2");
+        File file = new File(directory, "index.idx");
+        ChangedPathIndex index = new ChangedPathIndex(file);
+        index.update(git.getRepository(), c3, NullProgressMonitor.INSTANCE);
+        assertTrue(index.contains(c1));
+        assertTrue(index.mayHaveChanged(c1, "a/x.txt"));
+        assertTrue(index.mayHaveChanged(c1, "a"));
+        assertTrue(index.mayHaveChanged(c2, "b.txt"));
+        assertFalse(index.mayHaveChanged(c2, "a/x.txt"));
+        assertFalse(index.mayHaveChanged(c2, "a"));
+        assertTrue(index.mayHaveChanged(c3, "a/x.txt"));
+        assertFalse(index.mayHaveChanged(c3, "b.txt"));
+
+        index.save();
+        index = new ChangedPathIndex(file);
+        assertFalse(index.mayHaveChanged(c2, "a/x.txt"));
+        assertTrue(index.mayHaveChanged(c3, "a/x.txt"));
+    }
+
+    public void testUpdateAddsOnlyNewCommits() throws Exception {
+        RevCommit c1 = commit("a.txt", "1");
+        File file = new File(directory, "index.idx");
+        ChangedPathIndex index = new ChangedPathIndex(file);
+        index.update(git.getRepository(), c1, NullProgressMonitor.INSTANCE);
+        index.save();
+        RevCommit c2 = commit("b.txt", "1");
+        assertFalse(index.contains(c2));
+        assertTrue(index.mayHaveChanged(c2, "a.txt"));
+        index = new ChangedPathIndex(file);
+        index.update(git.getRepository(), c2, NullProgressMonitor.INSTANCE);
+        assertTrue(index.contains(c2));
+        assertFalse(index.mayHaveChanged(c2, "a.txt"));
+    }
+
+    public void testMurmur3() throws Exception {
+        // Reference values of MurmurHash3_x86_32
+        assertEquals(0, ChangedPathIndex.murmur3(0, new byte[0]));
+        assertEquals(0x514e28b7, ChangedPathIndex.murmur3(1, new byte[0]));
+        assertEquals(0xba6bd213, ChangedPathIndex.murmur3(0, "test".getBytes("UTF-8")));
+    }
+
+}
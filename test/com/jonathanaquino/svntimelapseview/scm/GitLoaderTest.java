@@ -0,0 +1,120 @@
+package com.jonathanaquino.svntimelapseview.scm;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.text.ParseException;
+import java.util.List;
+import java.util.TimeZone;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import com.jonathanaquino.svntimelapseview.Revision;
+
+public class GitLoaderTest extends TestCase {
+
+    private File directory;
+    private Git git;
+
+    protected void setUp() throws Exception {
+        directory = File.createTempFile("svn-time-lapse-view", "");
+        directory.delete();
+        git = Git.init().setDirectory(directory).call();
+    }
+
+    protected void tearDown() throws Exception {
+        git.getRepository().close();
+        delete(directory);
+    }
+
+    /**
+     * Deletes a file, or a directory and everything in it.
+     *
+     * @param file  the file or directory to delete
+     */
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        for (int i = 0; children != null && i < children.length; i++) {
+            delete(children[i]);
+        }
+        file.delete();
+    }
+
+    private RevCommit commit(String path, String contents, String author, String day) throws Exception {
+        File file = new File(directory, path);
+        FileWriter writer = new FileWriter(file);
+        writer.write(contents);
+        writer.close();
+        git.add().addFilepattern(path).call();
+        PersonIdent ident = new PersonIdent(author, author + "@example.com", HistoryFilter.parse(day, null, null).getSince(), TimeZone.getDefault());
+        return git.commit().setMessage(path).setAuthor(ident).setCommitter(ident).call();
+    }
+
+    private List load(HistoryFilter filter, File pathIndexDirectory) throws Exception {
+        GitLoader loader = new GitLoader();
+        loader.setHistoryFilter(filter);
+        loader.setPathIndexDirectory(pathIndexDirectory);
+        loader.loadRevisionsProper(new File(directory, "a.txt").getPath(), 0);
+        return loader.getRevisions();
+    }
+
+    private String contents(List revisions) {
+        StringBuffer contents = new StringBuffer();
+        for (int i = 0; i < revisions.size(); i++) { contents.append(((Revision) revisions.get(i)).getContents()); }
+        return contents.toString();
+    }
+
+    public void testFilterByDateAndAuthor() throws Exception {
+        commit("a.txt", "1", "alice", "2025-01-10");
+        RevCommit c2 = commit("a.txt", "2", "bob", "2025-02-10");
+        commit("b.txt", "x", "alice", "2025-03-10");
+        RevCommit c4 = commit("a.txt", "3", "alice", "2025-04-10");
+        commit("a.txt", "4", "bob", "2025-05-10");
+        File pathIndexDirectory = new File(directory, "index");
+        for (int i = 0; i < 2; i++) {
+            File indexDirectory = i == 0 ? null : pathIndexDirectory;
+            assertEquals("1234", contents(load(HistoryFilter.NONE, indexDirectory)));
+            assertEquals("13", contents(load(HistoryFilter.parse(null, null, "alice"), indexDirectory)));
+            List revisions = load(HistoryFilter.parse("2025-02-01", "2025-04-10", null), indexDirectory);
+            assertEquals("23", contents(revisions));
+            assertEquals(c2.getId().name(), ((Revision) revisions.get(0)).getRevisionNumber());
+            assertEquals(c4.getId().name(), ((Revision) revisions.get(1)).getRevisionNumber());
+            assertEquals(git.getRepository().resolve(c2.getId().name() + ":a.txt").name(), ((Revision) revisions.get(0)).getContentHash());
+            assertEquals("4", contents(load(HistoryFilter.parse("2025-04-11", null, "bob"), indexDirectory)));
+            assertEquals("", contents(load(HistoryFilter.parse("2025-06-01", null, null), indexDirectory)));
+        }
+    }
+
+    public void testMergeOfSideBranch() throws Exception {
+        RevCommit a = commit("a.txt", "1", "alice", "2025-01-10");
+        git.branchCreate().setName("side").call();
+        git.checkout().setName("side").call();
+        RevCommit x1 = commit("a.txt", "2", "bob", "2025-02-10");
+        git.checkout().setName("master").call();
+        commit("b.txt", "x", "alice", "2025-03-10");
+        assertTrue(git.merge().include(git.getRepository().getRef("side")).call().getMergeStatus().isSuccessful());
+        for (int i = 0; i < 2; i++) {
+            List revisions = load(HistoryFilter.NONE, i == 0 ? null : new File(directory, "index"));
+            assertEquals("12", contents(revisions));
+            assertEquals(a.getId().name(), ((Revision) revisions.get(0)).getRevisionNumber());
+            assertEquals(x1.getId().name(), ((Revision) revisions.get(1)).getRevisionNumber());
+        }
+    }
+
+    public void testParse() throws Exception {
+        assertTrue(HistoryFilter.parse("", " ", null).isEmpty());
+        HistoryFilter filter = HistoryFilter.parse("2025-07-01", "2025-09-30", " bob ");
+        assertEquals("2025-07-01", HistoryFilter.formatDay(filter.getSince()));
+        assertEquals("2025-09-30", HistoryFilter.formatDay(filter.getUntil()));
+        assertEquals("bob", filter.getAuthor());
+        try {
+            HistoryFilter.parse("2025-13-01", null, null);
+            fail();
+        } catch (ParseException e) {
+        }
+    }
+
+}
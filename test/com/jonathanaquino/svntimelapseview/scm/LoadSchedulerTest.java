@@ -0,0 +1,75 @@
+package com.jonathanaquino.svntimelapseview.scm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+import com.jonathanaquino.svntimelapseview.Closure;
+import com.jonathanaquino.svntimelapseview.Revision;
+
+public class LoadSchedulerTest extends TestCase {
+
+    /** A loader that returns the file path as its only revision; "slow" runs until cancelled. */
+    private class TestLoader extends ScmLoader {
+        private CountDownLatch started = new CountDownLatch(1);
+        private volatile List revisions;
+        private volatile String threadName;
+        protected void loadRevisionsProper(String filePathOrUrl, int limit) throws Exception {
+            threadName = Thread.currentThread().getName();
+            if (filePathOrUrl.equals("slow")) {
+                started.countDown();
+                while (! isCancelled()) { Thread.sleep(5); }
+            }
+            revisions = Collections.singletonList(filePathOrUrl);
+        }
+        protected void refreshRevisionsProper(String filePathOrUrl, Revision newest, int limit) throws Exception {
+        }
+        public int getLoadedCount() {
+            return 0;
+        }
+        public int getTotalCount() {
+            return 0;
+        }
+        public List getRevisions() {
+            return revisions;
+        }
+    }
+
+    private Closure record(final TestLoader loader, final List loaded, final CountDownLatch done) {
+        return new Closure() {
+            public void execute() throws Exception {
+                loaded.add(loader.getRevisions().get(0));
+                done.countDown();
+            }
+        };
+    }
+
+    public void testNewLoadSupersedesRunningLoad() throws Exception {
+        TestLoader loader = new TestLoader();
+        List loaded = Collections.synchronizedList(new ArrayList());
+        CountDownLatch done = new CountDownLatch(1);
+        loader.loadRevisions("slow", 100, record(loader, loaded, new CountDownLatch(1)));
+        loader.started.await();
+        loader.loadRevisions("fast", 100, record(loader, loaded, done));
+        done.await();
+        assertEquals(Collections.singletonList("fast"), loaded);
+        assertFalse(loader.isLoading());
+        assertTrue(loader.threadName.startsWith(LoadScheduler.LOAD_POOL + "-"));
+    }
+
+    public void testCancelStopsLoadAndKeepsResult() throws Exception {
+        TestLoader loader = new TestLoader();
+        List loaded = Collections.synchronizedList(new ArrayList());
+        CountDownLatch done = new CountDownLatch(1);
+        loader.loadRevisions("slow", 100, record(loader, loaded, done));
+        loader.started.await();
+        assertTrue(loader.isLoading());
+        loader.cancel();
+        done.await();
+        assertEquals(Collections.singletonList("slow"), loaded);
+    }
+
+}
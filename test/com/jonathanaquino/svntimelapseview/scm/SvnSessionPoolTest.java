@@ -0,0 +1,54 @@
+package com.jonathanaquino.svntimelapseview.scm;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.tmatesoft.svn.core.SVNURL;
+import org.tmatesoft.svn.core.io.SVNRepository;
+import org.tmatesoft.svn.core.io.SVNRepositoryFactory;
+
+public class SvnSessionPoolTest extends TestCase {
+
+    private String createRepository() throws Exception {
+        File directory = File.createTempFile("svn-time-lapse-view", "");
+        directory.delete();
+        SVNURL url = SVNRepositoryFactory.createLocalRepository(directory, true, false);
+        return url.toString();
+    }
+
+    public void testReleasedSessionIsLeasedAgain() throws Exception {
+        SvnSessionPool pool = new SvnSessionPool(60000);
+        String url = createRepository();
+        SVNRepository repository = pool.lease(url, "jon", "secret");
+        assertEquals(0, repository.getLatestRevision());
+        pool.release(repository);
+        assertEquals(1, pool.getIdleCount());
+        assertSame(repository, pool.lease(url, "jon", "secret"));
+        assertEquals(0, pool.getIdleCount());
+        assertNotSame(repository, pool.lease(url, "jon", "secret"));
+        pool.release(repository);
+        assertNotSame(repository, pool.lease(url, "someone else", "secret"));
+    }
+
+    public void testLeasedSessionMovesToNewLocation() throws Exception {
+        SvnSessionPool pool = new SvnSessionPool(60000);
+        String url = createRepository();
+        String otherUrl = createRepository();
+        SVNRepository repository = pool.lease(url, null, null);
+        repository.getLatestRevision();
+        pool.release(repository);
+        repository = pool.lease(otherUrl, null, null);
+        assertEquals(otherUrl, repository.getLocation().toString());
+        assertEquals(otherUrl, repository.getRepositoryRoot(true).toString());
+    }
+
+    public void testIdleSessionsAreClosed() throws Exception {
+        SvnSessionPool pool = new SvnSessionPool(60000);
+        pool.release(pool.lease(createRepository(), null, null));
+        assertEquals(0, pool.closeIdleSessions(System.currentTimeMillis()));
+        assertEquals(1, pool.closeIdleSessions(System.currentTimeMillis() + 60000));
+        assertEquals(0, pool.getIdleCount());
+    }
+
+}
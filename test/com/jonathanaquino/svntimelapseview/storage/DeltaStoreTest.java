@@ -0,0 +1,73 @@
+package com.jonathanaquino.svntimelapseview.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class DeltaStoreTest extends TestCase {
+
+    private byte[] bytes(String text) throws Exception {
+        return text.getBytes("UTF-8");
+    }
+
+    private String text(byte[] bytes) throws Exception {
+        return new String(bytes, "UTF-8");
+    }
+
+    public void testSplitKeepsLineTerminators() throws Exception {
+        assertEquals(0, DeltaStore.split(bytes("")).length);
+        assertEquals(3, DeltaStore.split(bytes("a\r\nb\nc")).length);
+        assertEquals(DeltaStore.split(bytes("a\n"))[0], DeltaStore.split(bytes("b\na\n"))[1]);
+        assertEquals("a\r\nb\nc", text(DeltaStore.join(DeltaStore.split(bytes("a\r\nb\nc")))));
+    }
+
+    public void testGetReturnsWhatWasAdded() throws Exception {
+        DeltaStore store = new DeltaStore(4);
+        String[] contents = new String[] { "", "a\n", "a\nb\n", "b\n", "b\nc", "b\r\nc\n", "", "x\ny\nz\n", "x\nz\n", "z\nx\n" };
+        for (int i = 0; i < contents.length; i++) {
+            assertEquals(i, store.add(bytes(contents[i])));
+        }
+        assertEquals(contents.length, store.size());
+        for (int i = 0; i < contents.length; i++) {
+            assertEquals(contents[i], text(store.get(i)));
+        }
+        for (int i = contents.length - 1; i >= 0; i--) {
+            assertEquals(contents[i], text(store.get(i)));
+        }
+    }
+
+    public void testUtf16RoundTrip() throws Exception {
+        DeltaStore store = new DeltaStore(4);
+        String[] contents = new String[] { "a\nb\n", "a\nc\nb\n", "c\nb\n" };
+        for (int i = 0; i < contents.length; i++) { store.add(contents[i].getBytes("UTF-16LE")); }
+        for (int i = 0; i < contents.length; i++) { assertEquals(contents[i], new String(store.get(i), "UTF-16LE")); }
+    }
+
+    public void testRandomEdits() throws Exception {
+        Random random = new Random(42);
+        DeltaStore store = new DeltaStore(5);
+        List contents = new ArrayList();
+        List lines = new ArrayList();
+        for (int i = 0; i < 100; i++) {
+            for (int j = random.nextInt(4); j > 0; j--) {
+                int position = random.nextInt(lines.size() + 1);
+                if (random.nextBoolean() && position < lines.size()) {
+                    lines.remove(position);
+                } else {
+                    lines.add(position, "line " + random.nextInt(10) + "\n");
+                }
+            }
+            StringBuffer text = new StringBuffer();
+            for (int j = 0; j < lines.size(); j++) { text.append(lines.get(j)); }
+            contents.add(text.toString());
+            store.add(bytes(text.toString()));
+        }
+        for (int i = 0; i < 300; i++) {
+            int index = random.nextInt(contents.size());
+            assertEquals(contents.get(index), text(store.get(index)));
+        }
+    }
+
+}
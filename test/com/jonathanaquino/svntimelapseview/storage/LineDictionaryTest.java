@@ -0,0 +1,23 @@
+package com.jonathanaquino.svntimelapseview.storage;
+
+import junit.framework.TestCase;
+
+public class LineDictionaryTest extends TestCase {
+
+    public void testEqualLinesGetEqualIds() throws Exception {
+        LineDictionary dictionary = new LineDictionary();
+        int[] a = dictionary.intern("x\r\ny\nx");
+        int[] b = dictionary.intern("y\rz");
+        assertEquals(3, a.length);
+        assertEquals(a[0], a[2]);
+        assertTrue(a[0] != a[1]);
+        assertEquals(a[1], b[0]);
+        assertEquals(3, dictionary.size());
+        assertEquals("z", dictionary.getLine(b[1]));
+        String[] lines = dictionary.getLines(a);
+        assertEquals("x", lines[0]);
+        assertEquals("y", lines[1]);
+        assertSame(lines[0], lines[2]);
+    }
+
+}
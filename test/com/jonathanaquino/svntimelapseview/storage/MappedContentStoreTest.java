@@ -0,0 +1,65 @@
+package com.jonathanaquino.svntimelapseview.storage;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.lang.StringUtils;
+
+import junit.framework.TestCase;
+
+public class MappedContentStoreTest extends TestCase {
+
+    private byte[] bytes(String text) throws Exception {
+        return text.getBytes("UTF-8");
+    }
+
+    private String text(byte[] bytes) throws Exception {
+        return new String(bytes, "UTF-8");
+    }
+
+    public void testContentsAreReadBackAcrossSegments() throws Exception {
+        MappedContentStore store = new MappedContentStore(null, 16);
+        String[] contents = new String[] { "first\n", "", "r\u00e9sum\u00e9\n", "0123456789", "0123456789", StringUtils.repeat("long ", 10), "last" };
+        for (int i = 0; i < contents.length; i++) {
+            assertEquals(i, store.add(bytes(contents[i])));
+        }
+        assertEquals(contents.length, store.size());
+        for (int i = contents.length - 1; i >= 0; i--) {
+            assertEquals(contents[i], text(store.get(i)));
+        }
+        assertEquals("more", text(store.get(store.add(bytes("more")))));
+    }
+
+    public void testCloseDeletesFile() throws Exception {
+        File directory = File.createTempFile("svn-time-lapse-view", "");
+        directory.delete();
+        MappedContentStore store = new MappedContentStore(directory, 16);
+        store.add(bytes("a\n"));
+        assertEquals("a\n", text(store.get(0)));
+        assertEquals(1, directory.list().length);
+        store.close();
+        store.close();
+        try {
+            store.get(0);
+            fail();
+        } catch (IOException e) {
+        }
+        assertEquals(0, directory.list().length);
+        directory.delete();
+    }
+
+    public void testSpillingStoreMovesToFileAfterBudget() throws Exception {
+        SpillingContentStore store = new SpillingContentStore(100, null);
+        assertEquals(0, store.add(bytes("a\n")));
+        assertFalse(store.isSpilled());
+        assertEquals(1, store.add(bytes(StringUtils.repeat("b\n", 100))));
+        assertEquals(2, store.add(bytes("c\n")));
+        assertTrue(store.isSpilled());
+        assertEquals(3, store.size());
+        assertEquals("a\n", text(store.get(0)));
+        assertEquals(StringUtils.repeat("b\n", 100), text(store.get(1)));
+        assertEquals("c\n", text(store.get(2)));
+        store.close();
+    }
+
+}
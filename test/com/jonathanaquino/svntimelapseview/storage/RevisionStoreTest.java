@@ -0,0 +1,50 @@
+package com.jonathanaquino.svntimelapseview.storage;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import com.jonathanaquino.svntimelapseview.Revision;
+import com.jonathanaquino.svntimelapseview.storage.RevisionStore.History;
+
+public class RevisionStoreTest extends TestCase {
+
+    private File createDirectory() throws Exception {
+        File directory = File.createTempFile("svn-time-lapse-view", "");
+        directory.delete();
+        return directory;
+    }
+
+    public void testContentsAreStoredByHash() throws Exception {
+        RevisionStore store = new RevisionStore(createDirectory());
+        String hash = store.putContents("hello".getBytes("UTF-8"));
+        assertEquals("aaf4c61ddcc5e8a2dabede0f3b482cd9aea9434d", hash);
+        assertEquals(hash, store.putContents("hello".getBytes("UTF-8")));
+        assertEquals("hello", new String(store.getContents(hash), "UTF-8"));
+        assertNull(store.getContents("0000000000000000000000000000000000000000"));
+        assertNull(store.getContents(null));
+    }
+
+    public void testHistory() throws Exception {
+        File directory = createDirectory();
+        RevisionStore store = new RevisionStore(directory);
+        assertNull(store.getHistory("uuid/trunk/a.txt"));
+        History history = new History();
+        history.set("window", "7,3");
+        history.add(new Revision(new Long(3), "jon", "2007-09-16 10:18", "First", "a"), "hash3");
+        history.add(new Revision(new Long(7), null, "2007-09-17 10:18", "Second\nline", "b"), "hash7");
+        store.putHistory("uuid/trunk/a.txt", history);
+
+        history = new RevisionStore(directory).getHistory("uuid/trunk/a.txt");
+        assertEquals("7,3", history.get("window"));
+        assertEquals(2, history.size());
+        assertEquals("3", history.getNumber(0));
+        assertEquals("jon", history.getAuthor(0));
+        assertNull(history.getAuthor(1));
+        assertEquals("Second\nline", history.getLogMessage(1));
+        assertEquals("hash7", history.getContentHash("7"));
+        assertNull(history.getContentHash("5"));
+        assertNull(store.getHistory("uuid/trunk/b.txt"));
+    }
+
+}
@@ -0,0 +1,58 @@
+package org.incava.util.diff;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class IntDiffTest extends TestCase {
+
+    private Integer[] box(int[] values) {
+        Integer[] boxed = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) { boxed[i] = new Integer(values[i]); }
+        return boxed;
+    }
+
+    private void assertSameDifferences(int[] a, int[] b) {
+        assertEquals(new Diff(box(a), box(b)).diff(), new IntDiff(a, b).diff());
+    }
+
+    public void testSameDifferencesAsDiff() {
+        assertSameDifferences(new int[] {}, new int[] {});
+        assertSameDifferences(new int[] {1, 2, 3}, new int[] {});
+        assertSameDifferences(new int[] {}, new int[] {1, 2, 3});
+        assertSameDifferences(new int[] {1, 2, 3}, new int[] {1, 2, 3});
+        assertSameDifferences(new int[] {1, 2, 3}, new int[] {1, 3});
+        assertSameDifferences(new int[] {0, 0, 0, 0, 0, 0}, new int[] {0, 1, 2, 0, 0, 5});
+        Random random = new Random(42);
+        for (int n = 0; n < 2000; n++) {
+            int alphabet = 1 + random.nextInt(10);
+            int[] a = new int[random.nextInt(50)];
+            int[] b = new int[random.nextInt(50)];
+            for (int i = 0; i < a.length; i++) { a[i] = random.nextInt(alphabet) * 7919 - 20000; }
+            for (int i = 0; i < b.length; i++) { b[i] = random.nextInt(alphabet) * 7919 - 20000; }
+            assertSameDifferences(a, b);
+        }
+    }
+
+    public void testLinksNoLongerReachableAreReused() {
+        // Few distinct lines make many links, most of which are soon replaced
+        Random random = new Random(42);
+        int[] a = new int[10000];
+        for (int i = 0; i < a.length; i++) { a[i] = random.nextInt(40); }
+        int[] b = (int[]) a.clone();
+        for (int i = 0; i < 50; i++) { b[random.nextInt(b.length)] = random.nextInt(40); }
+        IntDiff diff = new IntDiff(a, b);
+        assertFalse(diff.diff().isEmpty());
+        assertTrue(diff.getLinkCapacity() <= 2 * a.length);
+    }
+
+    public void testLongestCommonSubsequences() {
+        int[] matches = new IntDiff(new int[] {1, 2, 3, 4}, new int[] {1, 3, 4}).getLongestCommonSubsequences();
+        assertEquals(4, matches.length);
+        assertEquals(0, matches[0]);
+        assertEquals(-1, matches[1]);
+        assertEquals(1, matches[2]);
+        assertEquals(2, matches[3]);
+    }
+
+}